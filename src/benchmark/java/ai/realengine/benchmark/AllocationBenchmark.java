@@ -0,0 +1,162 @@
+package ai.realengine.benchmark;
+
+import ai.realengine.CaptionListener;
+import ai.realengine.RealEngineAIClient;
+import ai.realengine.testing.RealEngineSimulator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Measures the bytes allocated per caption request by the future and the listener APIs of the client.
+ * <p>
+ * Requests are sent one at a time, so the client runs in a single threaded steady state: the calling thread
+ * submits, the only dispatcher thread executes the call and reports the result. Both threads, and the thread
+ * of the retry executor, are created by the benchmark and live until the end, so their allocation counters
+ * cover every byte the client allocates. The simulator threads are not counted. The absolute numbers include
+ * OkHttp itself, the difference between the two APIs is the cost of the future and its cancellation stage.
+ * <p>
+ * Each API is measured over several rounds, after warm-up rounds, and the minimum and median are reported.
+ * <p>
+ * Usage: {@code AllocationBenchmark [requests per round] [rounds]}
+ */
+public class AllocationBenchmark {
+
+    private static final String IMAGE_URL = "http://example.com/image.jpg";
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        var requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        var rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        var threads = new ArrayList<Thread>();
+        threads.add(Thread.currentThread());
+        var dispatcherExecutor = Executors.newSingleThreadExecutor(recording(threads, "benchmark-dispatcher"));
+        var retryExecutor = Executors.newSingleThreadScheduledExecutor(recording(threads, "benchmark-retries"));
+        var clientThreads = new ClientThreads(threads);
+
+        try (var simulator = RealEngineSimulator.newBuilder().build()) {
+            simulator.start();
+            // The dispatcher thread starts with the first call, the retry thread has to be started explicitly
+            retryExecutor.submit(() -> { }).get();
+            var client = newClient(simulator.getRootUrl(), dispatcherExecutor, retryExecutor);
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                runFutures(client, requests);
+                runListeners(client, requests);
+            }
+
+            var futureBytes = new long[rounds];
+            var listenerBytes = new long[rounds];
+            for (int i = 0; i < rounds; i++) {
+                var before = clientThreads.allocatedBytes();
+                runFutures(client, requests);
+                futureBytes[i] = (clientThreads.allocatedBytes() - before) / requests;
+
+                before = clientThreads.allocatedBytes();
+                runListeners(client, requests);
+                listenerBytes[i] = (clientThreads.allocatedBytes() - before) / requests;
+            }
+
+            print("future API:  ", futureBytes);
+            print("listener API:", listenerBytes);
+        } finally {
+            dispatcherExecutor.shutdown();
+            retryExecutor.shutdown();
+        }
+    }
+
+    private static RealEngineAIClient newClient(String rootUrl,
+                                                ExecutorService dispatcherExecutor,
+                                                ScheduledExecutorService retryExecutor) {
+        var dispatcher = new Dispatcher(dispatcherExecutor);
+        dispatcher.setMaxRequests(1);
+        dispatcher.setMaxRequestsPerHost(1);
+        var httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .build();
+
+        return new RealEngineAIClient(httpClient,
+                rootUrl,
+                new ObjectMapper(),
+                retryExecutor,
+                "benchmark-token",
+                5);
+    }
+
+    private static void runFutures(RealEngineAIClient client, int requests) throws Exception {
+        for (int i = 0; i < requests; i++) {
+            client.getCaption(IMAGE_URL).get();
+        }
+    }
+
+    private static void runListeners(RealEngineAIClient client, int requests) throws InterruptedException {
+        var done = new Semaphore(0);
+        var listener = new CaptionListener() {
+            @Override
+            public void onCaption(String caption) {
+                done.release();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.release();
+            }
+        };
+
+        for (int i = 0; i < requests; i++) {
+            client.captionAsync(IMAGE_URL, listener);
+            done.acquire();
+        }
+    }
+
+    private static ThreadFactory recording(List<Thread> threads, String name) {
+        return runnable -> {
+            var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            synchronized (threads) {
+                threads.add(thread);
+            }
+            return thread;
+        };
+    }
+
+    private static void print(String api, long[] bytesPerRequest) {
+        var sorted = bytesPerRequest.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s min %,d, median %,d bytes/request%n", api, sorted[0], sorted[sorted.length / 2]);
+    }
+
+    /**
+     * The allocation counters of the threads running the client.
+     */
+    private static class ClientThreads {
+        final List<Thread> threads;
+
+        ClientThreads(List<Thread> threads) {
+            this.threads = threads;
+        }
+
+        long allocatedBytes() {
+            var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            var total = 0L;
+            synchronized (threads) {
+                for (var thread : threads) {
+                    total += threadBean.getThreadAllocatedBytes(thread.getId());
+                }
+            }
+            return total;
+        }
+    }
+
+}
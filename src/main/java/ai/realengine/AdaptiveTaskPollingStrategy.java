@@ -0,0 +1,108 @@
+package ai.realengine;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polls tasks at the times they are likely to complete, learned from the tasks completed before.
+ * <p>
+ * The completion times are kept in a streaming quantile sketch. A task is polled when it reaches
+ * the next quantile of the completion time from the schedule, by default the 50th, 75th, 90th, 95th
+ * and 99th percentiles, so that most tasks are found completed by the first polls. Tasks slower than
+ * the last quantile, and all tasks until enough completion times are known, are polled after the delay
+ * suggested by the server.
+ * <p>
+ * A poll only tells that a task completed since the previous poll, so the completion time is sampled
+ * uniformly from that interval. Recording the time of the poll itself would make the estimates
+ * drift towards the poll times.
+ */
+public class AdaptiveTaskPollingStrategy implements TaskPollingStrategy {
+
+    private static final double[] DEFAULT_QUANTILES = {0.5, 0.75, 0.9, 0.95, 0.99};
+    private static final int DEFAULT_MIN_SAMPLES = 20;
+    private static final long DEFAULT_MIN_DELAY_MS = 50;
+    private static final int HALF_LIFE = 1000;
+
+    private final CompletionTimeSketch sketch = new CompletionTimeSketch(HALF_LIFE);
+    private final double[] quantiles;
+    private final int minSamples;
+    private final long minDelayMs;
+
+    /**
+     * Create a strategy with the default schedule, learning from the first 20 completed tasks
+     * and never polling a task twice within 50ms.
+     */
+    public AdaptiveTaskPollingStrategy() {
+        this(DEFAULT_QUANTILES, DEFAULT_MIN_SAMPLES, DEFAULT_MIN_DELAY_MS);
+    }
+
+    /**
+     * Create a new strategy.
+     *
+     * @param quantiles  the quantiles of the completion time to poll at, in ascending order
+     * @param minSamples the number of completed tasks to learn from before using the schedule
+     * @param minDelayMs the minimum delay between two polls of a task
+     */
+    public AdaptiveTaskPollingStrategy(double[] quantiles, int minSamples, long minDelayMs) {
+        if (quantiles == null || quantiles.length == 0) {
+            throw new IllegalArgumentException("quantiles must not be null or empty");
+        }
+
+        for (int i = 0; i < quantiles.length; i++) {
+            if (quantiles[i] <= 0 || quantiles[i] > 1) {
+                throw new IllegalArgumentException("quantiles must be in (0, 1]");
+            }
+
+            if (i > 0 && quantiles[i] <= quantiles[i - 1]) {
+                throw new IllegalArgumentException("quantiles must be in ascending order");
+            }
+        }
+
+        if (minSamples < 0) {
+            throw new IllegalArgumentException("minSamples must be >= 0");
+        }
+
+        if (minDelayMs < 0) {
+            throw new IllegalArgumentException("minDelayMs must be >= 0");
+        }
+
+        this.quantiles = quantiles.clone();
+        this.minSamples = minSamples;
+        this.minDelayMs = minDelayMs;
+    }
+
+    @Override
+    public long nextPollDelayMs(long elapsedMs, long retryAfterMs) {
+        if (sketch.getSamples() < minSamples) {
+            return retryAfterMs;
+        }
+
+        for (var quantile : quantiles) {
+            var target = sketch.quantile(quantile);
+            if (target > elapsedMs) {
+                return Math.max(minDelayMs, target - elapsedMs);
+            }
+        }
+
+        // The task is slower than the schedule
+        return Math.max(minDelayMs, retryAfterMs);
+    }
+
+    @Override
+    public void onTaskCompleted(long lastMissMs, long completedMs) {
+        var completionMs = completedMs;
+        if (completedMs > lastMissMs) {
+            completionMs = lastMissMs + 1 + ThreadLocalRandom.current().nextLong(completedMs - lastMissMs);
+        }
+
+        sketch.add(completionMs);
+    }
+
+    /**
+     * @param quantile the quantile, between 0 and 1
+     * @return the estimated quantile of the task completion time in ms, or -1 if no task completed yet
+     */
+    public long getCompletionTimeMs(double quantile) {
+        return sketch.quantile(quantile);
+    }
+
+}
@@ -0,0 +1,419 @@
+package ai.realengine;
+
+import okhttp3.HttpUrl;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A captioning job that survives restarts.
+ * <p>
+ * Every submission, and the task location the server returns when it accepts the request as a task,
+ * is appended to a local journal before the job moves on. When the job is opened again after a restart,
+ * {@link #resume()} polls the recorded task locations instead of submitting the images again,
+ * and only resubmits the images that were never accepted by the server.
+ * <p>
+ * Results are reported to the {@link CaptionJobListener} before they are marked as finished in the journal,
+ * so a result may be reported twice if the process stops in between, but it is never lost.
+ * Only captions and the rejections of the image by the API (a 4xx response other than 401, 403, 404, 408 and 429)
+ * finish an image. Network failures, exhausted retries and authentication errors are reported as well, but the image
+ * stays pending and is restarted by the next {@link #resume()}. When the task of an image is no longer found at its
+ * recorded location, the image is submitted again without being reported.
+ * <p>
+ * The ids of finished images are kept in memory so that submitting them again is a no-op, and every open rewrites
+ * them to the compacted journal. Both grow with the number of finished images, so a job is meant for a batch
+ * of images rather than for an unbounded stream: start a new journal once a batch is done.
+ * <p>
+ * The journal is a text file with one tab separated record per line:
+ * {@code S id url} for a submission, {@code T id location} for an accepted task, {@code T id} for a task that
+ * expired on the server, and {@code D id} for a finished image.
+ * It is compacted every time the job is opened.
+ */
+public class CaptionJob implements Closeable {
+
+    private static final String SUBMITTED = "S";
+    private static final String ACCEPTED = "T";
+    private static final String FINISHED = "D";
+    private static final String SEPARATOR = "\t";
+
+    private static final int HTTP_NOT_FOUND = 404;
+
+    private final RealEngineAIClient client;
+    private final String lane;
+    private final CaptionJobListener listener;
+    private final Map<String, Entry> pending;
+    private final Set<String> finished;
+    private final BufferedWriter writer;
+
+    private boolean closed = false;
+
+    private CaptionJob(RealEngineAIClient client,
+                       String lane,
+                       CaptionJobListener listener,
+                       Map<String, Entry> pending,
+                       Set<String> finished,
+                       BufferedWriter writer) {
+        this.client = client;
+        this.lane = lane;
+        this.listener = listener;
+        this.pending = pending;
+        this.finished = finished;
+        this.writer = writer;
+    }
+
+    /**
+     * Open a job in the default lane, creating the journal if it does not exist.
+     *
+     * @param client   the client to use
+     * @param journal  the path of the journal file
+     * @param listener the listener to report the results to
+     */
+    public static CaptionJob open(RealEngineAIClient client,
+                                  Path journal,
+                                  CaptionJobListener listener) throws IOException {
+        return open(client, journal, RealEngineAIClient.DEFAULT_LANE, listener);
+    }
+
+    /**
+     * Open a job, creating the journal if it does not exist.
+     * The tasks left unfinished by a previous run are not restarted until {@link #resume()} is called.
+     *
+     * @param client   the client to use
+     * @param journal  the path of the journal file
+     * @param lane     the lane to send the requests through
+     * @param listener the listener to report the results to
+     */
+    public static CaptionJob open(RealEngineAIClient client,
+                                  Path journal,
+                                  String lane,
+                                  CaptionJobListener listener) throws IOException {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+
+        if (journal == null) {
+            throw new IllegalArgumentException("journal must not be null");
+        }
+
+        if (lane == null) {
+            throw new IllegalArgumentException("lane must not be null");
+        }
+
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+
+        var pending = new LinkedHashMap<String, Entry>();
+        var finished = new LinkedHashSet<String>();
+        if (Files.exists(journal)) {
+            replay(journal, pending, finished);
+        }
+
+        compact(journal, pending, finished);
+        var writer = Files.newBufferedWriter(journal,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+
+        return new CaptionJob(client, lane, listener, pending, finished, writer);
+    }
+
+    /**
+     * Submit an image to the job.
+     *
+     * @param id  the id of the image, unique within the job
+     * @param url the url of the image
+     * @return true if the image was submitted, false if the job already knows the id
+     */
+    public boolean submit(String id, String url) {
+        checkField("id", id);
+        checkField("url", url);
+
+        Entry entry;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The job is closed");
+            }
+
+            if (finished.contains(id) || pending.containsKey(id)) {
+                return false;
+            }
+
+            entry = new Entry(id, url);
+            entry.started = true;
+            pending.put(id, entry);
+            append(SUBMITTED, id, url);
+        }
+
+        start(entry);
+        return true;
+    }
+
+    /**
+     * Restart the tasks left unfinished by a previous run.
+     * Images accepted by the server are polled at their recorded location, the others are submitted again.
+     *
+     * @return the number of restarted images
+     */
+    public int resume() {
+        var entries = new ArrayList<Entry>();
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The job is closed");
+            }
+
+            for (var entry : pending.values()) {
+                if (!entry.started) {
+                    entry.started = true;
+                    entries.add(entry);
+                }
+            }
+        }
+
+        for (var entry : entries) {
+            start(entry);
+        }
+        return entries.size();
+    }
+
+    /**
+     * @return the number of submitted images that are not finished yet
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of finished images, including the ones finished by previous runs
+     */
+    public synchronized int getFinishedCount() {
+        return finished.size();
+    }
+
+    /**
+     * Close the journal. Images still in progress are reported to the listener but not recorded as finished,
+     * so they will be resumed by the next run.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        writer.close();
+    }
+
+    private void start(Entry entry) {
+        var location = entry.location == null ? null : HttpUrl.parse(entry.location);
+        var caption = location == null ?
+                client.requestCaption(entry.url, lane, url -> accepted(entry, url)) :
+                client.getTaskCaption(location, lane, url -> accepted(entry, url));
+
+        caption.whenComplete((result, th) -> finished(entry, result, th));
+    }
+
+    private synchronized void accepted(Entry entry, HttpUrl location) {
+        var value = location.toString();
+        if (value.equals(entry.location)) {
+            return;
+        }
+
+        entry.location = value;
+        append(ACCEPTED, entry.id, value);
+    }
+
+    private void finished(Entry entry, String caption, Throwable th) {
+        if (th instanceof CompletionException && th.getCause() != null) {
+            th = th.getCause();
+        }
+
+        if (isExpiredTask(entry, th)) {
+            synchronized (this) {
+                if (closed) {
+                    entry.started = false;
+                    return;
+                }
+
+                entry.location = null;
+                append(ACCEPTED, entry.id, null);
+            }
+            start(entry);
+            return;
+        }
+
+        if (th != null) {
+            listener.onError(entry.id, entry.url, th);
+        } else {
+            listener.onCaption(entry.id, entry.url, caption);
+        }
+
+        synchronized (this) {
+            if (th != null && !isTerminal(th)) {
+                // Polled again at its recorded location, or submitted again, by the next resume
+                entry.started = false;
+                return;
+            }
+
+            pending.remove(entry.id);
+            finished.add(entry.id);
+            append(FINISHED, entry.id, null);
+        }
+    }
+
+    /**
+     * @return true if the error is the rejection of the image by the API, rather than a failure to get the answer
+     */
+    private static boolean isTerminal(Throwable th) {
+        return th instanceof RealEngineAIException && ((RealEngineAIException) th).isRejection();
+    }
+
+    /**
+     * @return true if the recorded task of the image was not found, for instance because the server evicted it
+     */
+    private static boolean isExpiredTask(Entry entry, Throwable th) {
+        var location = entry.location == null ? null : HttpUrl.parse(entry.location);
+        if (location == null || !(th instanceof RealEngineAIException)) {
+            return false;
+        }
+
+        var exception = (RealEngineAIException) th;
+        return exception.getHttpStatus() == HTTP_NOT_FOUND && location.encodedPath().equals(exception.getPath());
+    }
+
+    private void append(String type, String id, String value) {
+        if (closed) {
+            return;
+        }
+
+        try {
+            writeRecord(writer, type, id, value);
+            // Flush every record, so that it survives a crash of the process
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the job journal", e);
+        }
+    }
+
+    private static void replay(Path journal, Map<String, Entry> pending, Set<String> finished) throws IOException {
+        var torn = !endsWithLineBreak(journal);
+        try (var reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            var next = reader.readLine();
+            while (next != null) {
+                var line = next;
+                next = reader.readLine();
+                // A partially written last record is skipped, it is dropped by the compaction
+                if (next == null && torn) {
+                    break;
+                }
+
+                var parts = line.split(SEPARATOR, 3);
+                if (parts.length < 2) {
+                    continue;
+                }
+
+                var id = parts[1];
+                switch (parts[0]) {
+                    case SUBMITTED:
+                        if (parts.length == 3 && !finished.contains(id)) {
+                            pending.putIfAbsent(id, new Entry(id, parts[2]));
+                        }
+                        break;
+                    case ACCEPTED:
+                        var entry = pending.get(id);
+                        if (entry != null) {
+                            // A record without location clears the location of an expired task
+                            entry.location = parts.length == 3 ? parts[2] : null;
+                        }
+                        break;
+                    case FINISHED:
+                        pending.remove(id);
+                        finished.add(id);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    private static boolean endsWithLineBreak(Path journal) throws IOException {
+        try (var channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size == 0) {
+                return true;
+            }
+
+            var buffer = ByteBuffer.allocate(1);
+            return channel.read(buffer, size - 1) == 1 && buffer.get(0) == '\n';
+        }
+    }
+
+    private static void compact(Path journal, Map<String, Entry> pending, Set<String> finished) throws IOException {
+        var tmp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try (var tmpWriter = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (var id : finished) {
+                writeRecord(tmpWriter, FINISHED, id, null);
+            }
+
+            for (var entry : pending.values()) {
+                writeRecord(tmpWriter, SUBMITTED, entry.id, entry.url);
+                if (entry.location != null) {
+                    writeRecord(tmpWriter, ACCEPTED, entry.id, entry.location);
+                }
+            }
+        }
+
+        Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeRecord(BufferedWriter writer, String type, String id, String value) throws IOException {
+        writer.write(type);
+        writer.write(SEPARATOR);
+        writer.write(id);
+        if (value != null) {
+            writer.write(SEPARATOR);
+            writer.write(value);
+        }
+        writer.newLine();
+    }
+
+    private static void checkField(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " must not be null or empty");
+        }
+
+        if (value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException(name + " must not contain tabs or line breaks");
+        }
+    }
+
+    private static class Entry {
+        final String id;
+        final String url;
+
+        volatile String location;
+        boolean started = false;
+
+        Entry(String id, String url) {
+            this.id = id;
+            this.url = url;
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package ai.realengine;
+
+/**
+ * Receives the results of a {@link CaptionJob} as they complete.
+ * The methods are called from the http client threads and should not block.
+ */
+public interface CaptionJobListener {
+
+    /**
+     * Called when the caption of an image is ready.
+     *
+     * @param id      the id of the image within the job
+     * @param url     the url of the image
+     * @param caption the caption
+     */
+    void onCaption(String id, String url, String caption);
+
+    /**
+     * Called when captioning an image failed. Unless the API rejected the image, it stays pending in the job
+     * and this method may be called again for the same image after {@link CaptionJob#resume()}.
+     *
+     * @param id    the id of the image within the job
+     * @param url   the url of the image
+     * @param error the cause of the failure
+     */
+    void onError(String id, String url, Throwable error);
+
+}
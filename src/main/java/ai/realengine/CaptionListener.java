@@ -0,0 +1,23 @@
+package ai.realengine;
+
+/**
+ * Receives the result of a caption request made with {@link RealEngineAIClient#captionAsync(String, CaptionListener)}.
+ * Exactly one of the methods is called, from the http client threads, so they should not block.
+ */
+public interface CaptionListener {
+
+    /**
+     * Called when the caption is ready.
+     *
+     * @param caption the caption
+     */
+    void onCaption(String caption);
+
+    /**
+     * Called when the captioning failed.
+     *
+     * @param error the cause of the failure
+     */
+    void onError(Throwable error);
+
+}
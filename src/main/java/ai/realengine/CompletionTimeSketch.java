@@ -0,0 +1,92 @@
+package ai.realengine;
+
+/**
+ * A streaming quantile sketch of task completion times.
+ * <p>
+ * Samples are counted in logarithmic buckets growing by 10% each, from 1ms up to one hour,
+ * so every quantile is estimated within 5% of the recorded value with a fixed amount of memory.
+ * The counts are halved every {@code halfLife} samples, so that the sketch follows changes
+ * of the server load instead of averaging over its whole lifetime.
+ */
+class CompletionTimeSketch {
+
+    private static final double GROWTH = 1.1;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final long MAX_VALUE_MS = 60 * 60 * 1000;
+    private static final int BUCKETS = (int) Math.ceil(Math.log(MAX_VALUE_MS) / LOG_GROWTH) + 1;
+
+    private final double[] counts = new double[BUCKETS];
+    private final int halfLife;
+
+    private double total = 0;
+    private long samples = 0;
+
+    CompletionTimeSketch(int halfLife) {
+        if (halfLife <= 0) {
+            throw new IllegalArgumentException("halfLife must be > 0");
+        }
+
+        this.halfLife = halfLife;
+    }
+
+    synchronized void add(long valueMs) {
+        counts[bucketOf(valueMs)]++;
+        total++;
+        samples++;
+        if (samples % halfLife == 0) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] /= 2;
+            }
+            total /= 2;
+        }
+    }
+
+    /**
+     * @return the total number of samples added to the sketch
+     */
+    synchronized long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @param quantile the quantile, between 0 and 1
+     * @return the estimated value of the quantile in ms, or -1 if the sketch is empty
+     */
+    synchronized long quantile(double quantile) {
+        if (total == 0) {
+            return -1;
+        }
+
+        var rank = quantile * total;
+        double cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank && counts[i] > 0) {
+                return valueOf(i);
+            }
+        }
+        return MAX_VALUE_MS;
+    }
+
+    private static int bucketOf(long valueMs) {
+        if (valueMs <= 1) {
+            return 0;
+        }
+
+        var bucket = (int) Math.ceil(Math.log(valueMs) / LOG_GROWTH);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * @return the midpoint of the bucket, between its lower and upper bounds
+     */
+    private static long valueOf(int bucket) {
+        if (bucket == 0) {
+            return 1;
+        }
+
+        var upper = Math.pow(GROWTH, bucket);
+        return Math.round((upper / GROWTH + upper) / 2);
+    }
+
+}
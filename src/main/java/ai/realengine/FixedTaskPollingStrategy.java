@@ -0,0 +1,14 @@
+package ai.realengine;
+
+/**
+ * Polls tasks after the delay suggested by the server with the {@code X-Retry-After} header,
+ * or after one second if the server did not suggest one.
+ */
+public class FixedTaskPollingStrategy implements TaskPollingStrategy {
+
+    @Override
+    public long nextPollDelayMs(long elapsedMs, long retryAfterMs) {
+        return retryAfterMs;
+    }
+
+}
@@ -0,0 +1,82 @@
+package ai.realengine;
+
+/**
+ * A snapshot of the metrics of a request lane.
+ */
+public class LaneStats {
+
+    /**
+     * Name of the lane
+     */
+    private final String name;
+
+    /**
+     * Weight of the lane, the share of the concurrency the lane gets when all lanes are busy
+     */
+    private final int weight;
+
+    /**
+     * Maximum number of requests of the lane in flight at once, 0 if the lane is not capped
+     */
+    private final int maxInFlight;
+
+    /**
+     * Number of requests waiting for a free slot
+     */
+    private final int queueDepth;
+
+    /**
+     * Number of requests currently being executed
+     */
+    private final int inFlight;
+
+    /**
+     * Total number of requests sent to the server
+     */
+    private final long dispatched;
+
+    public LaneStats(String name, int weight, int maxInFlight, int queueDepth, int inFlight, long dispatched) {
+        this.name = name;
+        this.weight = weight;
+        this.maxInFlight = maxInFlight;
+        this.queueDepth = queueDepth;
+        this.inFlight = inFlight;
+        this.dispatched = dispatched;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    @Override
+    public String toString() {
+        return "LaneStats{" +
+                "name='" + name + '\'' +
+                ", weight=" + weight +
+                ", maxInFlight=" + maxInFlight +
+                ", queueDepth=" + queueDepth +
+                ", inFlight=" + inFlight +
+                ", dispatched=" + dispatched +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package ai.realengine;
 
 import ai.realengine.dto.RealEngineAIResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.Call;
@@ -9,16 +10,34 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * A client for the RealEngine AI service.
  */
-public class RealEngineAIClient {
+public class RealEngineAIClient implements Closeable {
+
+    /**
+     * The lane used by requests that do not specify one.
+     */
+    public static final String DEFAULT_LANE = "default";
 
     private static final TypeReference<RealEngineAIResponse<String>> STRING_RESPONSE_TYPE = new TypeReference<>() {
     };
@@ -33,12 +52,28 @@ public class RealEngineAIClient {
     private static final String LOCATION_HEADER = "Location";
     private static final String RETRY_AFTER_HEADER = "X-Retry-After";
 
+    // How long, and how many, completions are remembered for the tasks no request is waiting for yet
+    private static final long RECENT_COMPLETION_TTL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int MAX_RECENT_COMPLETIONS = 1024;
+
     private final OkHttpClient httpClient;
     private final HttpUrl rootUrl;
     private final ObjectMapper mapper;
     private final ScheduledExecutorService executorService;
-    private final String token;
+    private final HttpUrl captionUrl;
+    private final String authorization;
     private final int maxRetries;
+    private final RequestScheduler scheduler;
+    private final TaskPollingStrategy pollingStrategy;
+    private final TaskPollingMetrics pollingMetrics = new TaskPollingMetrics();
+    private final TaskEventStream eventStream;
+    private final long fallbackPollIntervalMs;
+    private final Map<HttpUrl, Set<WaitingTask>> waitingTasks = new ConcurrentHashMap<>();
+    // Completion time of the recently completed tasks, in completion order, guarded by itself
+    private final LinkedHashMap<HttpUrl, Long> recentCompletions = new LinkedHashMap<>();
+    private final List<ExecutorService> ownedExecutors = new CopyOnWriteArrayList<>();
+
+    private volatile boolean closed = false;
 
     /**
      * Create a new client.
@@ -56,6 +91,46 @@ public class RealEngineAIClient {
                               ScheduledExecutorService executorService,
                               String token,
                               int maxRetries) {
+        this(httpClient,
+                rootUrl,
+                mapper,
+                executorService,
+                token,
+                maxRetries,
+                Map.of(DEFAULT_LANE, 1),
+                Map.of(),
+                new FixedTaskPollingStrategy(),
+                null,
+                Duration.ZERO);
+    }
+
+    /**
+     * Create a new client.
+     *
+     * @param httpClient      the http client to use
+     * @param rootUrl         the root url of the service
+     * @param mapper          the object mapper to use
+     * @param executorService the executor service to use
+     * @param token           the token to use
+     * @param maxRetries      the maximum number of retries to perform
+     * @param laneWeights     the weight of each request lane, the default lane is added with weight 1 if missing
+     * @param laneMaxInFlight the maximum number of requests in flight of the capped lanes
+     * @param pollingStrategy the strategy deciding when to poll the tasks accepted by the server
+     * @param taskEventsPath  the path of the server-sent events stream of task completions,
+     *                        or null to only poll the tasks
+     * @param fallbackPollInterval the minimum delay between the polls of a task when the task events are used
+     */
+    public RealEngineAIClient(OkHttpClient httpClient,
+                              String rootUrl,
+                              ObjectMapper mapper,
+                              ScheduledExecutorService executorService,
+                              String token,
+                              int maxRetries,
+                              Map<String, Integer> laneWeights,
+                              Map<String, Integer> laneMaxInFlight,
+                              TaskPollingStrategy pollingStrategy,
+                              String taskEventsPath,
+                              Duration fallbackPollInterval) {
         if (httpClient == null) {
             throw new IllegalArgumentException("httpClient must not be null");
         }
@@ -80,6 +155,22 @@ public class RealEngineAIClient {
             throw new IllegalArgumentException("maxRetries must be >= 0");
         }
 
+        if (laneWeights == null) {
+            throw new IllegalArgumentException("laneWeights must not be null");
+        }
+
+        if (laneMaxInFlight == null) {
+            throw new IllegalArgumentException("laneMaxInFlight must not be null");
+        }
+
+        if (pollingStrategy == null) {
+            throw new IllegalArgumentException("pollingStrategy must not be null");
+        }
+
+        if (fallbackPollInterval == null || fallbackPollInterval.isNegative()) {
+            throw new IllegalArgumentException("fallbackPollInterval must not be null or negative");
+        }
+
         this.maxRetries = maxRetries;
         HttpUrl parsedRootUrl = HttpUrl.parse(rootUrl);
         if (parsedRootUrl == null) {
@@ -90,7 +181,29 @@ public class RealEngineAIClient {
         this.rootUrl = parsedRootUrl;
         this.mapper = mapper;
         this.executorService = executorService;
-        this.token = token;
+        this.captionUrl = parsedRootUrl.newBuilder()
+                .addPathSegment("caption")
+                .build();
+        this.authorization = "Bearer " + token;
+        this.pollingStrategy = pollingStrategy;
+
+        var lanes = new LinkedHashMap<String, Integer>();
+        lanes.put(DEFAULT_LANE, 1);
+        lanes.putAll(laneWeights);
+        this.scheduler = new RequestScheduler(httpClient, lanes, laneMaxInFlight);
+
+        this.fallbackPollIntervalMs = fallbackPollInterval.toMillis();
+        if (taskEventsPath == null) {
+            this.eventStream = null;
+        } else {
+            var eventsUrl = parsedRootUrl.resolve(taskEventsPath);
+            if (eventsUrl == null) {
+                throw new IllegalArgumentException("The taskEventsPath provided is not valid");
+            }
+
+            this.eventStream = new TaskEventStream(httpClient, buildRequest(eventsUrl), this::onTaskEvent);
+            this.eventStream.start();
+        }
     }
 
     public static RealEngineAIClientBuilder newBuilder() {
@@ -104,14 +217,166 @@ public class RealEngineAIClient {
      * @return a future that will be completed with the caption, or an exception if the captioning failed
      */
     public CompletableFuture<String> getCaption(String url) {
-        var requestUrl = rootUrl.newBuilder()
-                .addPathSegment("caption")
-                .addQueryParameter("url", url)
-                .build();
-        var request = buildRequest(requestUrl);
-        var callback = new Callback<>(STRING_RESPONSE_TYPE);
+        return getCaption(url, DEFAULT_LANE);
+    }
+
+    /**
+     * Get the caption for an image at the given url, sending the requests through the given lane.
+     * Retries and task polls of the caption stay in the same lane.
+     *
+     * @param url  the url of the image to caption
+     * @param lane the name of the lane, configured with {@link RealEngineAIClientBuilder#addLane(String, int)}
+     * @return a future that will be completed with the caption, or an exception if the captioning failed
+     */
+    public CompletableFuture<String> getCaption(String url, String lane) {
+        return requestCaption(url, lane, null);
+    }
+
+    /**
+     * Get the caption for an image at the given url.
+     *
+     * @param url          the url of the image to caption
+     * @param lane         the name of the lane
+     * @param taskListener notified with the task location every time the server accepts the request as a task,
+     *                     may be null
+     * @return a future that will be completed with the caption, or an exception if the captioning failed
+     */
+    CompletableFuture<String> requestCaption(String url, String lane, Consumer<HttpUrl> taskListener) {
+        checkLane(lane);
 
-        return call(request, callback);
+        var callback = new FutureCallback<>(STRING_RESPONSE_TYPE, lane, taskListener, false);
+        call(buildRequest(buildCaptionUrl(url)), callback);
+        return callback.getResult();
+    }
+
+    /**
+     * Get the caption for an image at the given url, reporting the result to a listener.
+     * <p>
+     * Unlike {@link #getCaption(String)}, no future is created and the request cannot be cancelled.
+     * This saves the future and its cancellation stage for callers with a very high request rate,
+     * the url, the request and the lane entry of every call are still allocated.
+     *
+     * @param url      the url of the image to caption
+     * @param listener the listener to report the caption or the failure to
+     */
+    public void captionAsync(String url, CaptionListener listener) {
+        captionAsync(url, DEFAULT_LANE, listener);
+    }
+
+    /**
+     * Get the caption for an image at the given url, sending the requests through the given lane
+     * and reporting the result to a listener.
+     *
+     * @param url      the url of the image to caption
+     * @param lane     the name of the lane, configured with {@link RealEngineAIClientBuilder#addLane(String, int)}
+     * @param listener the listener to report the caption or the failure to
+     * @see #captionAsync(String, CaptionListener)
+     */
+    public void captionAsync(String url, String lane, CaptionListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+
+        checkLane(lane);
+        call(buildRequest(buildCaptionUrl(url)), new ListenerCallback(lane, listener));
+    }
+
+    /**
+     * Get the caption of a task the server has already accepted, by polling its location.
+     *
+     * @param location     the location of the task, as returned with the 202 response
+     * @param lane         the name of the lane
+     * @param taskListener notified with the task location every time the task is not ready yet, may be null
+     * @return a future that will be completed with the caption, or an exception if the captioning failed
+     */
+    CompletableFuture<String> getTaskCaption(HttpUrl location, String lane, Consumer<HttpUrl> taskListener) {
+        checkLane(lane);
+
+        var callback = new FutureCallback<>(STRING_RESPONSE_TYPE, lane, taskListener, true);
+        call(buildRequest(location), callback);
+        return callback.getResult();
+    }
+
+    /**
+     * @return a snapshot of the queue depth and concurrency metrics of each lane
+     */
+    public List<LaneStats> getLaneStats() {
+        return scheduler.getStats();
+    }
+
+    /**
+     * Poll a task right away, because its completion was notified by other means than the task events stream,
+     * for instance a webhook. The location is resolved against the root url if it is relative.
+     * The completion is remembered for a minute, so that a request still processing the 202 response
+     * polls the task as soon as it starts waiting for it.
+     *
+     * @param location the location of the task, as returned with the 202 response
+     * @return true if a request was waiting for the task
+     */
+    public boolean notifyTaskCompleted(String location) {
+        var url = resolveLocation(location);
+        if (url == null) {
+            return false;
+        }
+
+        // Remember the completion before looking for the waiting requests: a request that starts waiting
+        // in between either is found here, or finds the completion
+        rememberCompletion(url);
+        var waiting = waitingTasks.remove(url);
+        if (waiting == null) {
+            return false;
+        }
+
+        for (var waitingTask : waiting) {
+            waitingTask.poll();
+        }
+        return true;
+    }
+
+    /**
+     * Stop listening to the task events, and shut down the executors created by the {@link RealEngineAIClientBuilder}.
+     * The requests waiting for a task event poll their task right away, but a request that still has to wait
+     * for a retry or a poll after that fails, unless the executor service was provided to the builder.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        if (eventStream != null) {
+            eventStream.close();
+            for (var waiting : waitingTasks.values()) {
+                for (var waitingTask : waiting) {
+                    waitingTask.poll();
+                }
+            }
+        }
+
+        for (var executor : ownedExecutors) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Shut down the executor when the client is closed, for the executors created along with the client.
+     */
+    void shutdownOnClose(ExecutorService executor) {
+        ownedExecutors.add(executor);
+    }
+
+    /**
+     * @return a snapshot of the number of polls per task and the latency added by polling
+     */
+    public TaskPollingStats getTaskPollingStats() {
+        return pollingMetrics.snapshot();
+    }
+
+    private void checkLane(String lane) {
+        if (!scheduler.hasLane(lane)) {
+            throw new IllegalArgumentException("Unknown lane: " + lane);
+        }
     }
 
     private <T> void retryLater(Callback<T> callback, Response response, int retryCount) {
@@ -122,22 +387,26 @@ public class RealEngineAIClient {
                 () -> call(response.request(), callback),
                 retryAfter,
                 TimeUnit.MILLISECONDS);
-        callback.getResult().exceptionally(th -> {
-            future.cancel(true);
-            return null;
-        });
+        callback.cancelWithResult(future);
     }
 
     private <T> void getTaskResult(Callback<T> callback, Response response) {
-        var retryAfter = getRetryAfterMs(response);
+        var retryAfter = pollingStrategy.nextPollDelayMs(callback.elapsedMs(), getRetryAfterMs(response));
         var location = getLocation(response);
         if (location == null) {
-            callback.getResult()
-                    .completeExceptionally(new RealEngineAIException("Location header is missing",
-                            response.code(),
-                            response.request()
-                                    .url()
-                                    .encodedPath()));
+            callback.fail(new RealEngineAIException("Location header is missing",
+                    response.code(),
+                    getPath(response)));
+            return;
+        }
+
+        if (callback.taskListener != null) {
+            callback.taskListener.accept(location);
+        }
+
+        if (eventStream != null && !closed) {
+            // Wait for the completion event, and poll from time to time in case it is missed
+            waitForTaskEvent(callback, location, Math.max(retryAfter, fallbackPollIntervalMs));
             return;
         }
 
@@ -146,14 +415,79 @@ public class RealEngineAIClient {
                 retryAfter,
                 TimeUnit.MILLISECONDS);
         // If the future will be cancelled, cancel the future call
-        callback.getResult().exceptionally(th -> {
-            future.cancel(true);
-            return null;
+        callback.cancelWithResult(future);
+    }
+
+    private <T> void waitForTaskEvent(Callback<T> callback, HttpUrl location, long fallbackAfter) {
+        var waitingTask = new WaitingTask(location, callback);
+        waitingTasks.compute(location, (url, waiting) -> {
+            var tasks = waiting == null ? ConcurrentHashMap.<WaitingTask>newKeySet() : waiting;
+            tasks.add(waitingTask);
+            return tasks;
         });
+        // If the future will be cancelled, stop waiting for the task
+        callback.cancelWithResult(waitingTask);
+
+        // The completion event may have been received while the 202 response was processed
+        if (takeRecentCompletion(location)) {
+            waitingTask.poll();
+            return;
+        }
+
+        waitingTask.fallback = executorService.schedule(
+                waitingTask::poll,
+                fallbackAfter,
+                TimeUnit.MILLISECONDS);
+        if (waitingTask.polled.get()) {
+            // Polled by an event, or cancelled, before the fallback was set
+            waitingTask.fallback.cancel(false);
+        }
+    }
+
+    private void rememberCompletion(HttpUrl location) {
+        var now = System.nanoTime();
+        synchronized (recentCompletions) {
+            // The oldest completions come first, so the expired ones are at the head
+            var iterator = recentCompletions.values().iterator();
+            while (iterator.hasNext()) {
+                var completedAt = iterator.next();
+                if (now - completedAt <= RECENT_COMPLETION_TTL_NANOS
+                        && recentCompletions.size() < MAX_RECENT_COMPLETIONS) {
+                    break;
+                }
+                iterator.remove();
+            }
+
+            recentCompletions.remove(location);
+            recentCompletions.put(location, now);
+        }
+    }
+
+    private boolean takeRecentCompletion(HttpUrl location) {
+        synchronized (recentCompletions) {
+            var completedAt = recentCompletions.remove(location);
+            return completedAt != null && System.nanoTime() - completedAt <= RECENT_COMPLETION_TTL_NANOS;
+        }
+    }
+
+    private void onTaskEvent(String data) {
+        try {
+            var location = mapper.readTree(data)
+                    .path("location")
+                    .asText(null);
+            if (location != null) {
+                notifyTaskCompleted(location);
+            }
+        } catch (JsonProcessingException e) {
+            // Not a task event
+        }
     }
 
     private HttpUrl getLocation(Response response) {
-        var location = response.header(LOCATION_HEADER);
+        return resolveLocation(response.header(LOCATION_HEADER));
+    }
+
+    private HttpUrl resolveLocation(String location) {
         if (location == null) {
             return null;
         }
@@ -179,52 +513,143 @@ public class RealEngineAIClient {
         }
     }
 
+    private HttpUrl buildCaptionUrl(String url) {
+        return captionUrl.newBuilder()
+                .addQueryParameter("url", url)
+                .build();
+    }
+
     private Request buildRequest(HttpUrl url) {
         return new Request.Builder()
                 .url(url)
-                .addHeader("Authorization", "Bearer " + token)
+                .addHeader("Authorization", authorization)
                 .build();
     }
 
-    private <T> CompletableFuture<T> call(Request request, Callback<T> callback) {
+    private static String getPath(Response response) {
+        return response.request()
+                .url()
+                .encodedPath();
+    }
+
+    private <T> void call(Request request, Callback<T> callback) {
         var call = httpClient.newCall(request);
-        // If the future will be cancelled, cancel the call
-        callback.getResult().exceptionally(th -> {
-            call.cancel();
-            return null;
-        });
-        call.enqueue(callback);
-        return callback.getResult();
+        var scheduledCall = scheduler.enqueue(callback.lane, call, callback);
+        // If the future will be cancelled, cancel the call, or drop it from its lane if it is still queued
+        callback.cancelWithResult(scheduledCall);
     }
 
-    private class Callback<T> implements okhttp3.Callback {
-        final CompletableFuture<T> result;
+    private class WaitingTask implements Cancellable {
+        final HttpUrl location;
+        final Callback<?> callback;
+        final AtomicBoolean polled = new AtomicBoolean(false);
+
+        volatile ScheduledFuture<?> fallback;
+
+        private WaitingTask(HttpUrl location, Callback<?> callback) {
+            this.location = location;
+            this.callback = callback;
+        }
+
+        /**
+         * Poll the task once, either on its completion event or on the fallback delay, whichever comes first.
+         */
+        void poll() {
+            if (!polled.compareAndSet(false, true)) {
+                return;
+            }
+
+            removeWaitingTask();
+            var future = fallback;
+            if (future != null) {
+                future.cancel(false);
+            }
+            call(buildRequest(location), callback);
+        }
+
+        /**
+         * Stop waiting for the task.
+         */
+        @Override
+        public void cancel() {
+            polled.set(true);
+            removeWaitingTask();
+            var future = fallback;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        private void removeWaitingTask() {
+            waitingTasks.computeIfPresent(location, (url, waiting) -> {
+                waiting.remove(this);
+                return waiting.isEmpty() ? null : waiting;
+            });
+        }
+    }
+
+    /**
+     * Something to stop when the result of a request is cancelled.
+     */
+    private interface Cancellable {
+        void cancel();
+    }
+
+    /**
+     * Drives a request through retries and task polls, and reports its result.
+     */
+    private abstract class Callback<T> implements okhttp3.Callback {
         final TypeReference<RealEngineAIResponse<T>> responseType;
+        final String lane;
+        final Consumer<HttpUrl> taskListener;
+        final boolean resumed;
 
         volatile int retryCount = 0;
 
-        private Callback(TypeReference<RealEngineAIResponse<T>> responseType) {
-            this.result = new CompletableFuture<>();
+        // Polling state of the task, if the server accepted the request as a task
+        volatile long acceptedAtNanos = -1;
+        volatile int polls = 0;
+        volatile long lastMissMs = 0;
+
+        private Callback(TypeReference<RealEngineAIResponse<T>> responseType,
+                         String lane,
+                         Consumer<HttpUrl> taskListener,
+                         boolean resumed) {
             this.responseType = responseType;
+            this.lane = lane;
+            this.taskListener = taskListener;
+            this.resumed = resumed;
         }
 
-        public CompletableFuture<T> getResult() {
-            return result;
-        }
+        abstract void complete(T value);
+
+        abstract void fail(Throwable th);
+
+        /**
+         * Cancel the call if the result is cancelled or fails.
+         */
+        abstract void cancelWithResult(RequestScheduler.ScheduledCall call);
+
+        /**
+         * Cancel the scheduled future if the result is cancelled or fails.
+         */
+        abstract void cancelWithResult(Future<?> future);
+
+        /**
+         * Cancel the given task if the result is cancelled or fails.
+         */
+        abstract void cancelWithResult(Cancellable cancellable);
 
         @Override
         public void onResponse(Call call, Response response) {
             try (response) {
                 var statusCode = response.code();
-                var path = response.request()
-                        .url()
-                        .encodedPath();
 
                 if (statusCode == HTTP_TOO_MANY_REQUESTS || statusCode >= SERVER_ERROR) {
                     if (retryCount >= maxRetries) {
                         throw new RealEngineAIException("Too many retries",
                                 statusCode,
-                                path);
+                                getPath(response));
                     }
 
                     // It's ok to increment the retry count without additional synchronization
@@ -237,6 +662,7 @@ public class RealEngineAIClient {
 
                 retryCount = 0;
                 if (statusCode == HTTP_ACCEPTED) {
+                    taskNotReady();
                     getTaskResult(this, response);
                     return;
                 }
@@ -247,34 +673,63 @@ public class RealEngineAIClient {
                     if (error == null) {
                         throw new RealEngineAIException("The response is not successful but the error is null",
                                 statusCode,
-                                path);
+                                getPath(response));
                     }
 
                     throw new RealEngineAIException(error,
                             statusCode,
-                            path);
+                            getPath(response));
                 }
 
-                result.complete(apiResponse.getData());
+                // Only a task that actually completed tells when the result was ready
+                taskCompleted();
+                complete(apiResponse.getData());
             } catch (Exception e) {
-                result.completeExceptionally(e);
+                fail(e);
             }
         }
 
+        long elapsedMs() {
+            var acceptedAt = acceptedAtNanos;
+            return acceptedAt < 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acceptedAt);
+        }
+
+        private void taskNotReady() {
+            if (acceptedAtNanos < 0) {
+                acceptedAtNanos = System.nanoTime();
+                return;
+            }
+
+            // Like the retry count, the polling state is only updated by one response at a time
+            // noinspection NonAtomicOperationOnVolatileField
+            polls++;
+            lastMissMs = elapsedMs();
+        }
+
+        private void taskCompleted() {
+            // The acceptance time of a resumed task is unknown, so it would skew the completion times
+            if (acceptedAtNanos < 0 || resumed) {
+                return;
+            }
+
+            // noinspection NonAtomicOperationOnVolatileField
+            polls++;
+            var completedMs = elapsedMs();
+            pollingStrategy.onTaskCompleted(lastMissMs, completedMs);
+            pollingMetrics.record(polls, lastMissMs, completedMs);
+        }
+
         @Override
         public void onFailure(Call call, IOException e) {
-            result.completeExceptionally(e);
+            fail(e);
         }
 
         private RealEngineAIResponse<T> read(Response response) throws IOException {
             var body = response.body();
             if (body == null) {
-                var path = response.request()
-                        .url()
-                        .encodedPath();
                 throw new RealEngineAIException("The response body is null",
                         response.code(),
-                        path);
+                        getPath(response));
             }
 
             return mapper.readValue(
@@ -283,4 +738,100 @@ public class RealEngineAIClient {
         }
     }
 
+    private class FutureCallback<T> extends Callback<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private FutureCallback(TypeReference<RealEngineAIResponse<T>> responseType,
+                               String lane,
+                               Consumer<HttpUrl> taskListener,
+                               boolean resumed) {
+            super(responseType, lane, taskListener, resumed);
+        }
+
+        public CompletableFuture<T> getResult() {
+            return result;
+        }
+
+        @Override
+        void complete(T value) {
+            result.complete(value);
+        }
+
+        @Override
+        void fail(Throwable th) {
+            result.completeExceptionally(th);
+        }
+
+        @Override
+        void cancelWithResult(RequestScheduler.ScheduledCall call) {
+            result.exceptionally(th -> {
+                call.cancel();
+                return null;
+            });
+        }
+
+        @Override
+        void cancelWithResult(Future<?> future) {
+            result.exceptionally(th -> {
+                future.cancel(true);
+                return null;
+            });
+        }
+
+        @Override
+        void cancelWithResult(Cancellable cancellable) {
+            result.exceptionally(th -> {
+                cancellable.cancel();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Reports the result straight to a listener. The request cannot be cancelled,
+     * so nothing has to be registered for the cancellation of the calls and polls.
+     */
+    private class ListenerCallback extends Callback<String> {
+        final CaptionListener listener;
+
+        volatile boolean done = false;
+
+        private ListenerCallback(String lane, CaptionListener listener) {
+            super(STRING_RESPONSE_TYPE, lane, null, false);
+            this.listener = listener;
+        }
+
+        @Override
+        void complete(String value) {
+            if (done) {
+                return;
+            }
+
+            done = true;
+            listener.onCaption(value);
+        }
+
+        @Override
+        void fail(Throwable th) {
+            if (done) {
+                return;
+            }
+
+            done = true;
+            listener.onError(th);
+        }
+
+        @Override
+        void cancelWithResult(RequestScheduler.ScheduledCall call) {
+        }
+
+        @Override
+        void cancelWithResult(Future<?> future) {
+        }
+
+        @Override
+        void cancelWithResult(Cancellable cancellable) {
+        }
+    }
+
 }
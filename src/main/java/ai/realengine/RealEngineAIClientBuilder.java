@@ -5,6 +5,8 @@ import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -20,12 +22,18 @@ public class RealEngineAIClientBuilder {
     private int maxIdleConnections = 5;
     private int maxConcurrentRequests = 5;
     private Duration keepAliveDuration = Duration.ofMinutes(5);
+    private boolean retryOnConnectionFailure = true;
 
     private String rootUrl = "https://api.realengine.ai";
 
     private ObjectMapper objectMapper;
     private ScheduledExecutorService executorService;
     private int maxRetries = 5;
+    private final Map<String, Integer> laneWeights = new LinkedHashMap<>();
+    private final Map<String, Integer> laneMaxInFlight = new LinkedHashMap<>();
+    private TaskPollingStrategy taskPollingStrategy;
+    private String taskEventsPath;
+    private Duration fallbackPollInterval = Duration.ofSeconds(30);
 
     /**
      * Set the authentication token to use.
@@ -105,6 +113,16 @@ public class RealEngineAIClientBuilder {
         return this;
     }
 
+    /**
+     * Set whether the http client silently retries a request when the connection fails, for instance
+     * when a pooled connection was closed by the server. These retries are not counted by {@link #setMaxRetries(int)}.
+     * The default value is true.
+     */
+    public RealEngineAIClientBuilder setRetryOnConnectionFailure(boolean retryOnConnectionFailure) {
+        this.retryOnConnectionFailure = retryOnConnectionFailure;
+        return this;
+    }
+
     /**
      * Set the keep alive duration.
      * The keep alive duration is the duration after which idle connections are closed.
@@ -170,6 +188,94 @@ public class RealEngineAIClientBuilder {
         return this;
     }
 
+    /**
+     * Add a request lane, or change the weight of an existing one.
+     * Requests wait for a free slot in the queue of their lane, and when several lanes
+     * have waiting requests the slots are shared in proportion to the lane weights.
+     * The {@link RealEngineAIClient#DEFAULT_LANE default} lane has weight 1 unless set here.
+     *
+     * @param name   the name of the lane
+     * @param weight the share of the concurrent requests the lane gets under contention
+     */
+    public RealEngineAIClientBuilder addLane(String name, int weight) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Lane name must not be null or blank");
+        }
+
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Lane weight must be positive");
+        }
+
+        this.laneWeights.put(name, weight);
+        this.laneMaxInFlight.remove(name);
+        return this;
+    }
+
+    /**
+     * Add a request lane that never has more than the given number of requests in flight,
+     * or change an existing one. The slots the lane cannot take are left to the other lanes,
+     * so a busy bulk lane capped below {@link #setMaxConcurrentRequests(int)} cannot delay the first
+     * request of another lane.
+     *
+     * @param name        the name of the lane
+     * @param weight      the share of the concurrent requests the lane gets under contention
+     * @param maxInFlight the maximum number of requests of the lane in flight at once
+     * @see #addLane(String, int)
+     */
+    public RealEngineAIClientBuilder addLane(String name, int weight, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Lane max in flight must be positive");
+        }
+
+        addLane(name, weight);
+        this.laneMaxInFlight.put(name, maxInFlight);
+        return this;
+    }
+
+    /**
+     * Set the strategy deciding when to poll the tasks accepted by the server.
+     * The default strategy polls after the delay suggested by the server, or after one second.
+     *
+     * @see AdaptiveTaskPollingStrategy
+     */
+    public RealEngineAIClientBuilder setTaskPollingStrategy(TaskPollingStrategy taskPollingStrategy) {
+        if (taskPollingStrategy == null) {
+            throw new IllegalArgumentException("Task polling strategy must not be null");
+        }
+
+        this.taskPollingStrategy = taskPollingStrategy;
+        return this;
+    }
+
+    /**
+     * Set the path of the server-sent events stream announcing task completions, relative to the root URL.
+     * When set, the client subscribes to the stream and polls a task as soon as its completion event arrives,
+     * the data of the event being a JSON object with the {@code location} of the task.
+     * Tasks are still polled every fallback poll interval in case an event is missed.
+     * By default the client only polls the tasks.
+     */
+    public RealEngineAIClientBuilder setTaskEventsPath(String taskEventsPath) {
+        if (taskEventsPath == null || taskEventsPath.isBlank()) {
+            throw new IllegalArgumentException("Task events path must not be null or blank");
+        }
+
+        this.taskEventsPath = taskEventsPath;
+        return this;
+    }
+
+    /**
+     * Set the minimum delay between two polls of a task when the task events are used.
+     * The default value is 30s.
+     */
+    public RealEngineAIClientBuilder setFallbackPollInterval(Duration fallbackPollInterval) {
+        if (fallbackPollInterval.toMillis() < 0) {
+            throw new IllegalArgumentException("Fallback poll interval must not be negative");
+        }
+
+        this.fallbackPollInterval = fallbackPollInterval;
+        return this;
+    }
+
     public RealEngineAIClient build() {
         if (token == null || token.isBlank()) {
             throw new IllegalStateException("Token must be set");
@@ -188,22 +294,36 @@ public class RealEngineAIClientBuilder {
                         maxIdleConnections,
                         keepAliveDuration.toMillis(),
                         TimeUnit.MILLISECONDS))
+                .retryOnConnectionFailure(retryOnConnectionFailure)
                 .build();
 
         if (objectMapper == null) {
             objectMapper = new ObjectMapper();
         }
 
-        if (executorService == null) {
-            executorService = Executors.newSingleThreadScheduledExecutor();
+        // An executor created here belongs to the client, it is shut down when the client is closed
+        var ownedExecutorService = executorService == null ? Executors.newSingleThreadScheduledExecutor() : null;
+
+        if (taskPollingStrategy == null) {
+            taskPollingStrategy = new FixedTaskPollingStrategy();
         }
 
-        return new RealEngineAIClient(httpClient,
+        var client = new RealEngineAIClient(httpClient,
                 rootUrl,
                 objectMapper,
-                executorService,
+                ownedExecutorService == null ? executorService : ownedExecutorService,
                 token,
-                maxRetries);
+                maxRetries,
+                laneWeights,
+                laneMaxInFlight,
+                taskPollingStrategy,
+                taskEventsPath,
+                fallbackPollInterval);
+        client.shutdownOnClose(dispatcher.executorService());
+        if (ownedExecutorService != null) {
+            client.shutdownOnClose(ownedExecutorService);
+        }
+        return client;
     }
 
 }
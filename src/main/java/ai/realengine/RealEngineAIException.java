@@ -59,4 +59,21 @@ public class RealEngineAIException extends RuntimeException {
         return path;
     }
 
+    /**
+     * @return true if the API rejected the request itself, so that sending it again gives the same error.
+     * Authentication errors, timeouts, throttling, missing tasks and server errors are not rejections.
+     */
+    public boolean isRejection() {
+        switch (httpStatus) {
+            case 401:
+            case 403:
+            case 404:
+            case 408:
+            case 429:
+                return false;
+            default:
+                return httpStatus >= 400 && httpStatus < 500;
+        }
+    }
+
 }
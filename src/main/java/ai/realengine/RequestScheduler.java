@@ -0,0 +1,220 @@
+package ai.realengine;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admits calls to the http client in weighted fair order across named lanes.
+ * <p>
+ * The OkHttp dispatcher runs queued calls in FIFO order, so the scheduler never hands it
+ * more calls than it can run at once and keeps the rest in per-lane queues.
+ * When several lanes have queued calls, free slots are shared in proportion to the lane weights
+ * (smooth weighted round-robin); a lane with nothing queued leaves its share to the others.
+ * A lane can also be capped to a number of calls in flight, so that it never holds every slot
+ * and the other lanes always find a free one.
+ */
+class RequestScheduler {
+
+    private final Map<String, Lane> lanes;
+    private final int maxInFlight;
+
+    private int inFlight = 0;
+
+    /**
+     * Create a new scheduler.
+     *
+     * @param httpClient      the http client whose dispatcher limits the number of calls in flight
+     * @param laneWeights     the weight of each lane, in the order the lanes should be reported
+     * @param laneMaxInFlight the maximum number of calls in flight of the capped lanes
+     */
+    RequestScheduler(OkHttpClient httpClient, Map<String, Integer> laneWeights, Map<String, Integer> laneMaxInFlight) {
+        if (laneWeights == null || laneWeights.isEmpty()) {
+            throw new IllegalArgumentException("laneWeights must not be null or empty");
+        }
+
+        if (laneMaxInFlight == null) {
+            throw new IllegalArgumentException("laneMaxInFlight must not be null");
+        }
+
+        var dispatcher = httpClient.dispatcher();
+        this.maxInFlight = Math.min(dispatcher.getMaxRequests(), dispatcher.getMaxRequestsPerHost());
+        this.lanes = new LinkedHashMap<>();
+        laneWeights.forEach((name, weight) -> {
+            if (weight == null || weight <= 0) {
+                throw new IllegalArgumentException("Weight of lane " + name + " must be > 0");
+            }
+
+            var maxInFlight = laneMaxInFlight.getOrDefault(name, Integer.MAX_VALUE);
+            if (maxInFlight == null || maxInFlight <= 0) {
+                throw new IllegalArgumentException("Max in flight of lane " + name + " must be > 0");
+            }
+
+            lanes.put(name, new Lane(name, weight, maxInFlight));
+        });
+    }
+
+    boolean hasLane(String name) {
+        return lanes.containsKey(name);
+    }
+
+    /**
+     * Queue the call in the given lane. The call is enqueued to the http client as soon as
+     * a slot is free and the lane is next in turn.
+     *
+     * @return the scheduled call, to cancel it
+     */
+    ScheduledCall enqueue(String laneName, Call call, Callback callback) {
+        var lane = lanes.get(laneName);
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown lane: " + laneName);
+        }
+
+        var scheduledCall = new ScheduledCall(lane, call, callback);
+        synchronized (this) {
+            lane.queue.add(scheduledCall);
+        }
+        dispatch();
+        return scheduledCall;
+    }
+
+    /**
+     * @return a snapshot of the per-lane metrics
+     */
+    synchronized List<LaneStats> getStats() {
+        var stats = new ArrayList<LaneStats>(lanes.size());
+        for (var lane : lanes.values()) {
+            stats.add(new LaneStats(lane.name,
+                    lane.weight,
+                    lane.maxInFlight == Integer.MAX_VALUE ? 0 : lane.maxInFlight,
+                    lane.queue.size(),
+                    lane.inFlight,
+                    lane.dispatched));
+        }
+        return stats;
+    }
+
+    private void dispatch() {
+        while (true) {
+            ScheduledCall next;
+            synchronized (this) {
+                if (inFlight >= maxInFlight) {
+                    return;
+                }
+
+                next = pollNext();
+                if (next == null) {
+                    return;
+                }
+
+                inFlight++;
+                next.lane.inFlight++;
+                next.lane.dispatched++;
+            }
+
+            // Enqueue outside the lock, the dispatcher may call back synchronously for cancelled calls
+            next.call.enqueue(next);
+        }
+    }
+
+    private ScheduledCall pollNext() {
+        Lane selected = null;
+        var totalWeight = 0;
+        for (var lane : lanes.values()) {
+            if (lane.queue.isEmpty() || lane.inFlight >= lane.maxInFlight) {
+                continue;
+            }
+
+            lane.currentWeight += lane.weight;
+            totalWeight += lane.weight;
+            if (selected == null || lane.currentWeight > selected.currentWeight) {
+                selected = lane;
+            }
+        }
+
+        if (selected == null) {
+            return null;
+        }
+
+        selected.currentWeight -= totalWeight;
+        var iterator = selected.queue.iterator();
+        var next = iterator.next();
+        iterator.remove();
+        return next;
+    }
+
+    private void finished(Lane lane) {
+        synchronized (this) {
+            inFlight--;
+            lane.inFlight--;
+        }
+        dispatch();
+    }
+
+    private static class Lane {
+        final String name;
+        final int weight;
+        final int maxInFlight;
+        // A set rather than a deque, so that cancelled calls are removed in constant time
+        final LinkedHashSet<ScheduledCall> queue = new LinkedHashSet<>();
+
+        int currentWeight = 0;
+        int inFlight = 0;
+        long dispatched = 0;
+
+        Lane(String name, int weight, int maxInFlight) {
+            this.name = name;
+            this.weight = weight;
+            this.maxInFlight = maxInFlight;
+        }
+    }
+
+    class ScheduledCall implements Callback {
+        final Lane lane;
+        final Call call;
+        final Callback delegate;
+
+        ScheduledCall(Lane lane, Call call, Callback delegate) {
+            this.lane = lane;
+            this.call = call;
+            this.delegate = delegate;
+        }
+
+        /**
+         * Cancel the call. A call still waiting in its lane is dropped without ever reaching the http client.
+         */
+        void cancel() {
+            synchronized (RequestScheduler.this) {
+                lane.queue.remove(this);
+            }
+            call.cancel();
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            try {
+                delegate.onResponse(call, response);
+            } finally {
+                finished(lane);
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            try {
+                delegate.onFailure(call, e);
+            } finally {
+                finished(lane);
+            }
+        }
+    }
+
+}
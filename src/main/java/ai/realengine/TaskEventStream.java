@@ -0,0 +1,141 @@
+package ai.realengine;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Subscribes to a server-sent events stream and passes the data of every event to a consumer.
+ * <p>
+ * The stream is read by a daemon thread, outside of the dispatcher of the http client so that it does not
+ * take a slot from the requests. When the connection fails or ends, the stream reconnects with an exponential
+ * backoff, sending the id of the last received event in the {@code Last-Event-ID} header.
+ */
+class TaskEventStream implements Closeable {
+
+    private static final long MIN_RECONNECT_MS = 1000;
+    private static final long MAX_RECONNECT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final OkHttpClient httpClient;
+    private final Request request;
+    private final Consumer<String> consumer;
+    private final Thread thread;
+
+    private volatile boolean closed = false;
+    private volatile Call currentCall;
+    private String lastEventId;
+
+    /**
+     * Create a new stream, it does not connect until {@link #start()} is called.
+     *
+     * @param httpClient the http client to use, its read timeout is disabled for the stream
+     * @param request    the request opening the stream
+     * @param consumer   the consumer of the event data, called from the stream thread
+     */
+    TaskEventStream(OkHttpClient httpClient, Request request, Consumer<String> consumer) {
+        this.httpClient = httpClient.newBuilder()
+                .readTimeout(Duration.ZERO)
+                .build();
+        this.request = request;
+        this.consumer = consumer;
+        this.thread = new Thread(this::run, "RealEngineAI task events");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        var call = currentCall;
+        if (call != null) {
+            call.cancel();
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        var reconnectMs = MIN_RECONNECT_MS;
+        while (!closed) {
+            if (read()) {
+                reconnectMs = MIN_RECONNECT_MS;
+            }
+
+            try {
+                Thread.sleep(reconnectMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            reconnectMs = Math.min(MAX_RECONNECT_MS, reconnectMs * 2);
+        }
+    }
+
+    /**
+     * @return true if the server accepted the connection
+     */
+    private boolean read() {
+        var builder = request.newBuilder()
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+
+        var call = httpClient.newCall(builder.build());
+        currentCall = call;
+        // close() may have run before the call was published, a socket read is not interrupted
+        if (closed) {
+            call.cancel();
+            return false;
+        }
+
+        try (var response = call.execute()) {
+            var body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                return false;
+            }
+
+            var reader = new BufferedReader(new InputStreamReader(body.byteStream(), StandardCharsets.UTF_8));
+            var data = new StringBuilder();
+            String line;
+            while (!closed && (line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    if (data.length() > 0) {
+                        consumer.accept(data.toString());
+                        data.setLength(0);
+                    }
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(fieldValue(line, "data:"));
+                } else if (line.startsWith("id:")) {
+                    lastEventId = fieldValue(line, "id:");
+                }
+                // Comments and other fields are ignored
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Reconnect, the tasks are still polled in the meantime
+            return false;
+        } finally {
+            currentCall = null;
+        }
+    }
+
+    private static String fieldValue(String line, String field) {
+        var value = line.substring(field.length());
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+
+}
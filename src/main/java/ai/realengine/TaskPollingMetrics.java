@@ -0,0 +1,24 @@
+package ai.realengine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the polls of the tasks completed by a client.
+ */
+class TaskPollingMetrics {
+
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder addedLatencyMs = new LongAdder();
+
+    void record(int taskPolls, long lastMissMs, long completedMs) {
+        tasks.increment();
+        polls.add(taskPolls);
+        addedLatencyMs.add(Math.max(0, completedMs - lastMissMs) / 2);
+    }
+
+    TaskPollingStats snapshot() {
+        return new TaskPollingStats(tasks.sum(), polls.sum(), addedLatencyMs.sum());
+    }
+
+}
@@ -0,0 +1,63 @@
+package ai.realengine;
+
+/**
+ * A snapshot of the task polling metrics of a client.
+ */
+public class TaskPollingStats {
+
+    /**
+     * Number of tasks found completed by a poll
+     */
+    private final long tasks;
+
+    /**
+     * Number of polls sent for those tasks
+     */
+    private final long polls;
+
+    /**
+     * Sum over the tasks of the estimated time between the task completion and the poll that found it
+     */
+    private final long addedLatencyMs;
+
+    public TaskPollingStats(long tasks, long polls, long addedLatencyMs) {
+        this.tasks = tasks;
+        this.polls = polls;
+        this.addedLatencyMs = addedLatencyMs;
+    }
+
+    public long getTasks() {
+        return tasks;
+    }
+
+    public long getPolls() {
+        return polls;
+    }
+
+    /**
+     * @return the average number of polls per task, 0 if no task completed yet
+     */
+    public double getPollsPerTask() {
+        return tasks == 0 ? 0 : (double) polls / tasks;
+    }
+
+    /**
+     * The completion time of a task is only known to be between the last poll that found it not ready
+     * and the poll that found it completed, so the added latency is estimated as half of that interval.
+     *
+     * @return the average estimated latency added by polling in ms, 0 if no task completed yet
+     */
+    public double getAverageAddedLatencyMs() {
+        return tasks == 0 ? 0 : (double) addedLatencyMs / tasks;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskPollingStats{" +
+                "tasks=" + tasks +
+                ", polls=" + polls +
+                ", pollsPerTask=" + getPollsPerTask() +
+                ", averageAddedLatencyMs=" + getAverageAddedLatencyMs() +
+                '}';
+    }
+}
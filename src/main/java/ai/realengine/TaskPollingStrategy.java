@@ -0,0 +1,29 @@
+package ai.realengine;
+
+/**
+ * Decides when to poll a task the server has accepted with a 202 response.
+ * Implementations must be thread safe, they are shared by all the requests of a client.
+ */
+public interface TaskPollingStrategy {
+
+    /**
+     * Get the delay before the next poll of a task.
+     *
+     * @param elapsedMs    the time since the task was accepted
+     * @param retryAfterMs the delay suggested by the server, or the default delay if the server did not suggest one
+     * @return the delay before the next poll in ms
+     */
+    long nextPollDelayMs(long elapsedMs, long retryAfterMs);
+
+    /**
+     * Called when a poll finds a task completed.
+     * The task completed some time after {@code lastMissMs} and at most at {@code completedMs}.
+     *
+     * @param lastMissMs  the time since the task was accepted of the last poll that found it not ready,
+     *                    0 if it was found completed by the first poll
+     * @param completedMs the time since the task was accepted of the poll that found it completed
+     */
+    default void onTaskCompleted(long lastMissMs, long completedMs) {
+    }
+
+}
@@ -0,0 +1,49 @@
+package ai.realengine.batch;
+
+/**
+ * The outcome of a {@link CaptionBatchRunner} run.
+ */
+public class BatchSummary {
+
+    /**
+     * Number of images captioned successfully in this run
+     */
+    private final long succeeded;
+
+    /**
+     * Number of images that failed in this run
+     */
+    private final long failed;
+
+    /**
+     * Number of input lines skipped because a previous run already processed them
+     */
+    private final long skipped;
+
+    public BatchSummary(long succeeded, long failed, long skipped) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.skipped = skipped;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchSummary{" +
+                "succeeded=" + succeeded +
+                ", failed=" + failed +
+                ", skipped=" + skipped +
+                '}';
+    }
+}
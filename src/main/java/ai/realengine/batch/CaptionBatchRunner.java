@@ -0,0 +1,399 @@
+package ai.realengine.batch;
+
+import ai.realengine.RealEngineAIClient;
+import ai.realengine.RealEngineAIException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Captions a file of image urls, one url per line, and writes the results to a JSONL file.
+ * <p>
+ * The input is streamed and at most {@code maxConcurrency} images are captioned at once.
+ * Each result is written as soon as it is ready, so the output is in completion order:
+ * {@code {"line":1,"url":"...","caption":"..."}} for a caption and
+ * {@code {"line":2,"url":"...","error":"...","errorId":"...","httpStatus":400}} for a failure.
+ * Failures that may not happen again, such as network errors, throttling and server errors,
+ * are marked with {@code "retryable":true}.
+ * Blank lines and lines starting with {@code #} are ignored.
+ * <p>
+ * The number of leading input lines that are fully processed is checkpointed next to the output
+ * in a {@code .checkpoint} file. A new run over the same files skips those lines and the lines found
+ * in the output after the checkpoint, so a restart does not caption an image twice.
+ * The lines whose last record is a retryable failure are captioned again.
+ * To keep the memory use flat, the runner never gets more than {@code maxConcurrency * 64} lines
+ * ahead of the oldest unfinished line.
+ */
+public class CaptionBatchRunner {
+
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final int WINDOW_PER_REQUEST = 64;
+    private static final long CHECKPOINT_INTERVAL = 1000;
+    private static final int DEFAULT_MAX_CONCURRENCY = 16;
+    private static final String USAGE = "Usage: CaptionBatchRunner <input> <output> [max concurrency]";
+
+    private final RealEngineAIClient client;
+    private final ObjectMapper mapper;
+    private final int maxConcurrency;
+    private final String lane;
+
+    /**
+     * Create a new runner sending requests through the default lane.
+     *
+     * @param client         the client to use
+     * @param mapper         the object mapper to use
+     * @param maxConcurrency the maximum number of images captioned at once
+     */
+    public CaptionBatchRunner(RealEngineAIClient client, ObjectMapper mapper, int maxConcurrency) {
+        this(client, mapper, maxConcurrency, RealEngineAIClient.DEFAULT_LANE);
+    }
+
+    /**
+     * Create a new runner.
+     *
+     * @param client         the client to use
+     * @param mapper         the object mapper to use
+     * @param maxConcurrency the maximum number of images captioned at once
+     * @param lane           the lane to send the requests through
+     */
+    public CaptionBatchRunner(RealEngineAIClient client, ObjectMapper mapper, int maxConcurrency, String lane) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+
+        if (mapper == null) {
+            throw new IllegalArgumentException("mapper must not be null");
+        }
+
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be > 0");
+        }
+
+        if (lane == null || client.getLaneStats().stream().noneMatch(stats -> stats.getName().equals(lane))) {
+            throw new IllegalArgumentException("Unknown lane: " + lane);
+        }
+
+        this.client = client;
+        this.mapper = mapper;
+        this.maxConcurrency = maxConcurrency;
+        this.lane = lane;
+    }
+
+    /**
+     * Caption the images listed in the input file, resuming from the checkpoint of a previous run if there is one.
+     *
+     * @param input  the file of image urls
+     * @param output the JSONL file to append the results to
+     * @return the summary of this run
+     */
+    public BatchSummary run(Path input, Path output) throws IOException, InterruptedException {
+        var checkpoint = output.resolveSibling(output.getFileName() + CHECKPOINT_SUFFIX);
+        var watermark = readCheckpoint(checkpoint);
+        var recovered = new HashSet<Long>();
+        var retryable = new HashSet<Long>();
+        recoverOutput(output, watermark, recovered, retryable);
+
+        try (var writer = Files.newBufferedWriter(output,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            var run = new Run(writer, checkpoint, watermark, recovered, retryable);
+            return run.execute(input);
+        }
+    }
+
+    private long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).strip());
+        } catch (NumberFormatException e) {
+            throw new IOException("The checkpoint file " + checkpoint + " is corrupted", e);
+        }
+    }
+
+    /**
+     * Drop a partially written last record, collect the lines written after the checkpoint,
+     * and the lines whose last record is a retryable failure.
+     */
+    private void recoverOutput(Path output, long watermark, Set<Long> recovered, Set<Long> retryable)
+            throws IOException {
+        if (!Files.exists(output)) {
+            return;
+        }
+
+        truncateAfterLastLine(output);
+        try (var reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                try {
+                    var node = mapper.readTree(record);
+                    var lineNumber = node.path("line").asLong();
+                    if (node.path("retryable").asBoolean()) {
+                        retryable.add(lineNumber);
+                        recovered.remove(lineNumber);
+                    } else {
+                        retryable.remove(lineNumber);
+                        if (lineNumber > watermark) {
+                            recovered.add(lineNumber);
+                        }
+                    }
+                } catch (JsonProcessingException e) {
+                    // Not a record of this runner
+                }
+            }
+        }
+    }
+
+    private static void truncateAfterLastLine(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = ByteBuffer.allocate(8192);
+            var position = channel.size();
+            while (position > 0) {
+                var chunk = (int) Math.min(buffer.capacity(), position);
+                position -= chunk;
+                buffer.clear().limit(chunk);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+
+                for (int i = chunk - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        channel.truncate(position + i + 1);
+                        return;
+                    }
+                }
+            }
+            channel.truncate(0);
+        }
+    }
+
+    /**
+     * The state of a single run. Guarded by its own monitor.
+     */
+    private class Run {
+        final BufferedWriter writer;
+        final Path checkpoint;
+        final Set<Long> completedAhead;
+        final Set<Long> retryable;
+        final long window = (long) maxConcurrency * WINDOW_PER_REQUEST;
+
+        long watermark;
+        long checkpointed;
+        int inFlight = 0;
+        long succeeded = 0;
+        long failed = 0;
+        long skipped = 0;
+        IOException writeError;
+
+        Run(BufferedWriter writer, Path checkpoint, long watermark, Set<Long> recovered, Set<Long> retryable) {
+            this.writer = writer;
+            this.checkpoint = checkpoint;
+            this.watermark = watermark;
+            this.checkpointed = watermark;
+            this.completedAhead = recovered;
+            this.retryable = retryable;
+        }
+
+        BatchSummary execute(Path input) throws IOException, InterruptedException {
+            try (var reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    var url = line.strip();
+                    synchronized (this) {
+                        while (writeError == null && (inFlight >= maxConcurrency || lineNumber - watermark > window)) {
+                            wait();
+                        }
+
+                        checkWriteError();
+                        // A line that failed in a previous run is captioned again, even behind the checkpoint
+                        var retry = retryable.remove(lineNumber);
+                        if (!retry && (lineNumber <= watermark || completedAhead.contains(lineNumber))) {
+                            skipped++;
+                            completed(lineNumber);
+                            continue;
+                        }
+
+                        if (url.isEmpty() || url.startsWith("#")) {
+                            completed(lineNumber);
+                            continue;
+                        }
+
+                        inFlight++;
+                    }
+
+                    submit(lineNumber, url);
+                }
+            }
+
+            synchronized (this) {
+                while (writeError == null && inFlight > 0) {
+                    wait();
+                }
+
+                checkWriteError();
+                writer.flush();
+                writeCheckpoint();
+                return new BatchSummary(succeeded, failed, skipped);
+            }
+        }
+
+        private void submit(long lineNumber, String url) {
+            CompletableFuture<String> caption;
+            try {
+                caption = client.getCaption(url, lane);
+            } catch (RuntimeException e) {
+                caption = CompletableFuture.failedFuture(e);
+            }
+
+            caption.whenComplete((result, th) -> finished(lineNumber, url, result, th));
+        }
+
+        private void finished(long lineNumber, String url, String caption, Throwable th) {
+            var record = mapper.createObjectNode();
+            record.put("line", lineNumber);
+            record.put("url", url);
+            if (th == null) {
+                record.put("caption", caption);
+            } else {
+                var error = th instanceof CompletionException && th.getCause() != null ? th.getCause() : th;
+                if (error instanceof RealEngineAIException) {
+                    var apiError = (RealEngineAIException) error;
+                    record.put("error", apiError.getErrorMessage());
+                    record.put("errorId", apiError.getErrorId());
+                    record.put("httpStatus", apiError.getHttpStatus());
+                    if (!apiError.isRejection()) {
+                        record.put("retryable", true);
+                    }
+                } else {
+                    record.put("error", String.valueOf(error.getMessage()));
+                    record.put("retryable", true);
+                }
+            }
+
+            synchronized (this) {
+                inFlight--;
+                try {
+                    writer.write(mapper.writeValueAsString(record));
+                    writer.newLine();
+                    if (th == null) {
+                        succeeded++;
+                    } else {
+                        failed++;
+                    }
+
+                    completed(lineNumber);
+                } catch (IOException e) {
+                    writeError = e;
+                }
+                notifyAll();
+            }
+        }
+
+        /**
+         * Advance the watermark over the finished lines and checkpoint it from time to time.
+         */
+        private void completed(long lineNumber) throws IOException {
+            if (lineNumber <= watermark) {
+                return;
+            }
+
+            completedAhead.add(lineNumber);
+            while (completedAhead.remove(watermark + 1)) {
+                watermark++;
+            }
+
+            if (watermark - checkpointed >= CHECKPOINT_INTERVAL) {
+                // The results must be on disk before the checkpoint says they are
+                writer.flush();
+                writeCheckpoint();
+            }
+        }
+
+        private void writeCheckpoint() throws IOException {
+            var tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            Files.writeString(tmp, Long.toString(watermark), StandardCharsets.UTF_8);
+            Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointed = watermark;
+        }
+
+        private void checkWriteError() throws IOException {
+            if (writeError != null) {
+                throw new IOException("Failed to write the results", writeError);
+            }
+        }
+    }
+
+    /**
+     * Caption the images listed in a file from the command line.
+     * The token is read from the {@code REALENGINE_TOKEN} environment variable,
+     * and the root url from {@code REALENGINE_ROOT_URL} if it is set.
+     * The process exits with status 0 if every image got a caption, 1 if some failed or the results
+     * could not be written, and 2 on invalid arguments.
+     * <p>
+     * Usage: {@code CaptionBatchRunner <input> <output> [max concurrency]}
+     */
+    public static void main(String[] args) throws Exception {
+        var maxConcurrency = args.length > 2 ? parseMaxConcurrency(args[2]) : DEFAULT_MAX_CONCURRENCY;
+        if (args.length < 2 || args.length > 3 || maxConcurrency <= 0) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        var token = System.getenv("REALENGINE_TOKEN");
+        if (token == null || token.isBlank()) {
+            System.err.println("The REALENGINE_TOKEN environment variable must be set");
+            System.exit(2);
+        }
+
+        var builder = RealEngineAIClient.newBuilder()
+                .setToken(token)
+                .setMaxConcurrentRequests(maxConcurrency);
+        var rootUrl = System.getenv("REALENGINE_ROOT_URL");
+        if (rootUrl != null && !rootUrl.isBlank()) {
+            builder.setRootUrl(rootUrl);
+        }
+
+        int status;
+        try (var client = builder.build()) {
+            var runner = new CaptionBatchRunner(client, new ObjectMapper(), maxConcurrency);
+            var summary = runner.run(Path.of(args[0]), Path.of(args[1]));
+            System.out.println(summary);
+            status = summary.getFailed() > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println("The batch stopped: " + e.getMessage());
+            status = 1;
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    private static int parseMaxConcurrency(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package ai.realengine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveTaskPollingStrategyTest {
+
+    @Test
+    void usesServerDelayUntilWarmedUp() {
+        // Given
+        var strategy = new AdaptiveTaskPollingStrategy();
+        for (int i = 0; i < 19; i++) {
+            strategy.onTaskCompleted(0, 200);
+        }
+
+        // When
+        var delay = strategy.nextPollDelayMs(0, 1000);
+
+        // Then
+        assertEquals(1000, delay);
+    }
+
+    @Test
+    void pollsAtLearnedQuantiles() {
+        // Given
+        var strategy = new AdaptiveTaskPollingStrategy();
+        for (int i = 1; i <= 1000; i++) {
+            // Completion times spread evenly between 1 and 1000ms, known exactly
+            strategy.onTaskCompleted(i, i);
+        }
+
+        // When
+        var firstDelay = strategy.nextPollDelayMs(0, 1000);
+        var secondDelay = strategy.nextPollDelayMs(firstDelay, 1000);
+
+        // Then
+        assertTrue(Math.abs(firstDelay - 500) <= 25, "first poll at the median: " + firstDelay);
+        assertTrue(Math.abs(firstDelay + secondDelay - 750) <= 40, "second poll at p75: " + (firstDelay + secondDelay));
+        assertEquals(1000, strategy.nextPollDelayMs(5000, 1000));
+    }
+
+    @Test
+    void samplesCompletionTimeWithinPollInterval() {
+        // Given
+        var strategy = new AdaptiveTaskPollingStrategy();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            strategy.onTaskCompleted(100, 300);
+        }
+
+        // Then
+        var median = strategy.getCompletionTimeMs(0.5);
+        assertTrue(median > 150 && median < 250, "median within the poll interval: " + median);
+    }
+
+}
@@ -0,0 +1,260 @@
+package ai.realengine;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptionJobTest {
+
+    @TempDir
+    Path tempDir;
+
+    RealEngineAIClient client;
+
+    MockWebServer mockWebServer;
+
+    @BeforeEach
+    void setup() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                var requestUrl = request.getRequestUrl();
+                if (requestUrl.encodedPath().equals("/task")) {
+                    if ("expired".equals(requestUrl.queryParameter("id"))) {
+                        return MockResponses.error(404, "gone", "No such task");
+                    }
+
+                    return MockResponses.success("task " + requestUrl.queryParameter("id"));
+                }
+
+                var url = requestUrl.queryParameter("url");
+                if (url.endsWith("down")) {
+                    return MockResponses.error(503, "down", "Unavailable");
+                }
+
+                if (url.endsWith("throttled")) {
+                    return MockResponses.error(429, "quota", "Too many requests")
+                            .addHeader("X-Retry-After", "0.01");
+                }
+
+                if (url.endsWith("bad")) {
+                    return MockResponses.error(400, "bad", "Invalid url");
+                }
+
+                if (url.endsWith("slow")) {
+                    return MockResponses.accepted("/task?id=slow")
+                            .addHeader("X-Retry-After", "0.01");
+                }
+
+                return MockResponses.success("caption " + url);
+            }
+        });
+        mockWebServer.start();
+        client = RealEngineAIClient.newBuilder()
+                .setToken("test-token")
+                .setRootUrl(mockWebServer.url("/").toString())
+                .setMaxRetries(0)
+                .build();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void submitRecordsTaskLocation() throws Exception {
+        // Given
+        var journal = tempDir.resolve("job.journal");
+        var listener = new RecordingListener();
+
+        // When
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            assertTrue(job.submit("1", "http://example.com/fast"));
+            assertTrue(job.submit("2", "http://example.com/slow"));
+            assertFalse(job.submit("1", "http://example.com/fast"));
+            awaitFinished(job);
+        }
+
+        // Then
+        assertEquals("caption http://example.com/fast", listener.captions.get("1"));
+        assertEquals("task slow", listener.captions.get("2"));
+        var records = Files.readAllLines(journal);
+        assertTrue(records.contains("S\t2\thttp://example.com/slow"));
+        assertTrue(records.contains("T\t2\t" + mockWebServer.url("/task?id=slow")));
+        assertTrue(records.contains("D\t1"));
+        assertTrue(records.contains("D\t2"));
+    }
+
+    @Test
+    void resumePollsRecordedLocations() throws Exception {
+        // Given
+        var journal = tempDir.resolve("job.journal");
+        Files.write(journal, List.of(
+                "S\tdone\thttp://example.com/done",
+                "S\taccepted\thttp://example.com/accepted",
+                "T\taccepted\t" + mockWebServer.url("/task?id=recorded"),
+                "S\tlost\thttp://example.com/lost",
+                "D\tdone",
+                "S\ttrunc"));
+        var listener = new RecordingListener();
+
+        // When
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            assertEquals(2, job.getPendingCount());
+            assertFalse(job.submit("done", "http://example.com/done"));
+            assertEquals(2, job.resume());
+            awaitFinished(job);
+        }
+
+        // Then
+        assertEquals("task recorded", listener.captions.get("accepted"));
+        assertEquals("caption http://example.com/lost", listener.captions.get("lost"));
+        assertEquals(2, mockWebServer.getRequestCount());
+
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            assertEquals(0, job.getPendingCount());
+            assertEquals(3, job.getFinishedCount());
+        }
+        assertEquals(Set.of("D\tdone", "D\taccepted", "D\tlost"), Set.copyOf(Files.readAllLines(journal)));
+    }
+
+    @Test
+    void failureFinishesOnlyRejectedImages() throws Exception {
+        // Given
+        var journal = tempDir.resolve("job.journal");
+        var listener = new RecordingListener();
+
+        // When
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            job.submit("bad", "http://example.com/bad");
+            job.submit("down", "http://example.com/down");
+            awaitPending(job, 1);
+            awaitReported(listener, "down");
+        }
+
+        // Then
+        assertTrue(listener.captions.get("bad").contains("Invalid url"));
+        assertTrue(listener.captions.get("down").contains("Too many retries"));
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            assertEquals(1, job.getPendingCount());
+            assertEquals(1, job.getFinishedCount());
+            assertFalse(job.submit("bad", "http://example.com/bad"));
+        }
+    }
+
+    @Test
+    void throttledImageStaysPending() throws Exception {
+        // Given
+        var journal = tempDir.resolve("job.journal");
+        var listener = new RecordingListener();
+
+        // When
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            job.submit("throttled", "http://example.com/throttled");
+            awaitReported(listener, "throttled");
+        }
+
+        // Then
+        assertTrue(listener.captions.get("throttled").contains("Too many retries"));
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            assertEquals(1, job.getPendingCount());
+            assertEquals(0, job.getFinishedCount());
+        }
+    }
+
+    @Test
+    void resumeResubmitsExpiredTask() throws Exception {
+        // Given
+        var journal = tempDir.resolve("job.journal");
+        Files.write(journal, List.of(
+                "S\texpired\thttp://example.com/expired",
+                "T\texpired\t" + mockWebServer.url("/task?id=expired")));
+        var listener = new RecordingListener();
+
+        // When
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            job.resume();
+            awaitFinished(job);
+            assertTrue(Files.readAllLines(journal).contains("T\texpired"));
+        }
+
+        // Then
+        assertEquals("caption http://example.com/expired", listener.captions.get("expired"));
+        assertEquals("/task", mockWebServer.takeRequest().getRequestUrl().encodedPath());
+        assertEquals("/caption", mockWebServer.takeRequest().getRequestUrl().encodedPath());
+    }
+
+    @Test
+    void openIgnoresTornLastRecord() throws Exception {
+        // Given
+        var journal = tempDir.resolve("job.journal");
+        Files.writeString(journal, "S\tlost\thttp://example.com/lost\n" +
+                "T\tlost\thttp://host/ta");
+        var listener = new RecordingListener();
+
+        // When
+        try (var job = CaptionJob.open(client, journal, listener)) {
+            assertEquals(1, job.resume());
+            awaitFinished(job);
+        }
+
+        // Then
+        assertEquals("caption http://example.com/lost", listener.captions.get("lost"));
+        assertEquals("/caption", mockWebServer.takeRequest().getRequestUrl().encodedPath());
+    }
+
+    private static void awaitFinished(CaptionJob job) throws InterruptedException {
+        awaitPending(job, 0);
+    }
+
+    private static void awaitPending(CaptionJob job, int count) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.getPendingCount() > count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, job.getPendingCount());
+    }
+
+    private static void awaitReported(RecordingListener listener, String id) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!listener.captions.containsKey(id) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(listener.captions.containsKey(id));
+    }
+
+    private static class RecordingListener implements CaptionJobListener {
+        final Map<String, String> captions = new ConcurrentHashMap<>();
+
+        @Override
+        public void onCaption(String id, String url, String caption) {
+            captions.put(id, caption);
+        }
+
+        @Override
+        public void onError(String id, String url, Throwable error) {
+            captions.put(id, "error " + error.getMessage());
+        }
+    }
+
+}
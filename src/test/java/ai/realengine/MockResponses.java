@@ -0,0 +1,63 @@
+package ai.realengine;
+
+import ai.realengine.dto.ErrorDTO;
+import ai.realengine.dto.RealEngineAIResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.MockResponse;
+
+/**
+ * Responses of the RealEngine AI service, shared by the tests that dispatch them from a mock web server.
+ */
+public final class MockResponses {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MockResponses() {
+    }
+
+    /**
+     * @return a 200 response with the given caption
+     */
+    public static MockResponse success(String caption) {
+        var apiResponse = new RealEngineAIResponse<String>();
+        apiResponse.setSuccess(true);
+        apiResponse.setData(caption);
+        return response(200, apiResponse);
+    }
+
+    /**
+     * @return a 202 response pointing to the given task location
+     */
+    public static MockResponse accepted(String location) {
+        var apiResponse = new RealEngineAIResponse<Void>();
+        apiResponse.setSuccess(true);
+        return response(202, apiResponse)
+                .addHeader("Location", location);
+    }
+
+    /**
+     * @return an error response with the given status
+     */
+    public static MockResponse error(int code, String id, String message) {
+        var error = new ErrorDTO();
+        error.setId(id);
+        error.setMsg(message);
+
+        var apiResponse = new RealEngineAIResponse<Void>();
+        apiResponse.setSuccess(false);
+        apiResponse.setError(error);
+        return response(code, apiResponse);
+    }
+
+    private static MockResponse response(int code, RealEngineAIResponse<?> apiResponse) {
+        try {
+            return new MockResponse()
+                    .setResponseCode(code)
+                    .setBody(objectMapper.writeValueAsString(apiResponse));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -3,14 +3,21 @@ package ai.realengine;
 import ai.realengine.dto.ErrorDTO;
 import ai.realengine.dto.RealEngineAIResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -178,4 +185,338 @@ class RealEngineAIClientTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void captionAsyncSuccessTest() throws Exception {
+        // Given
+        var apiResponse = new RealEngineAIResponse<>();
+        apiResponse.setSuccess(true);
+        apiResponse.setData("This is a test caption");
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+        // When
+        var result = new CompletableFuture<String>();
+        client.captionAsync("http://example.com/testImage", new CaptionListener() {
+            @Override
+            public void onCaption(String caption) {
+                result.complete(caption);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+
+        // Then
+        assertEquals("This is a test caption", result.get(5, TimeUnit.SECONDS));
+
+        var request = mockWebServer.takeRequest();
+        var requestUrl = request.getRequestUrl();
+        assertNotNull(requestUrl);
+        assertEquals("/caption", requestUrl.encodedPath());
+        assertEquals("http://example.com/testImage", requestUrl.queryParameter("url"));
+        assertEquals("Bearer test-token", request.getHeader("Authorization"));
+    }
+
+    @Test
+    void captionAsyncFailureTest() throws Exception {
+        // Given
+        var error = new ErrorDTO();
+        error.setId("test-error-id");
+        error.setMsg("The link is not accessible");
+
+        var apiResponse = new RealEngineAIResponse<>();
+        apiResponse.setSuccess(false);
+        apiResponse.setError(error);
+
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(400)
+                .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+        // When
+        var result = new CompletableFuture<Throwable>();
+        client.captionAsync("http://example.com/testImage", new CaptionListener() {
+            @Override
+            public void onCaption(String caption) {
+                result.complete(null);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.complete(error);
+            }
+        });
+
+        // Then
+        var th = result.get(5, TimeUnit.SECONDS);
+        assertNotNull(th);
+        assertEquals("Error id: test-error-id, message: The link is not accessible, http status: 400, path: /caption",
+                th.getMessage());
+    }
+
+    @Test
+    void captionAsyncNotReadyTest() throws Exception {
+        // Given
+        var voidAPIResponse = new RealEngineAIResponse<Void>();
+        voidAPIResponse.setSuccess(true);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(202)
+                .addHeader("Location", "/task?id=test-task-id")
+                .addHeader("X-Retry-After", "0.01")
+                .setBody(objectMapper.writeValueAsString(voidAPIResponse)));
+
+        var apiResponse = new RealEngineAIResponse<String>();
+        apiResponse.setSuccess(true);
+        apiResponse.setData("This is a test caption");
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+        // When
+        var listener = new CountingCaptionListener();
+        client.captionAsync("http://example.com/testImage", listener);
+
+        // Then
+        assertEquals("This is a test caption", listener.result.get(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, listener.calls.get());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    @Test
+    void captionAsyncRetryTest() throws Exception {
+        // Given
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(500));
+
+        var apiResponse = new RealEngineAIResponse<String>();
+        apiResponse.setSuccess(true);
+        apiResponse.setData("This is a test caption");
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+        // When
+        var listener = new CountingCaptionListener();
+        client.captionAsync("http://example.com/testImage", listener);
+
+        // Then
+        assertEquals("This is a test caption", listener.result.get(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, listener.calls.get());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    @Test
+    void getCaptionNotReadyRecordsPollingStats() throws Exception {
+        // Given
+        var voidAPIResponse = new RealEngineAIResponse<Void>();
+        voidAPIResponse.setSuccess(true);
+        var response = new MockResponse()
+                .setResponseCode(202)
+                .addHeader("Location", "/task?id=test-task-id")
+                .addHeader("X-Retry-After", "0.01")
+                .setBody(objectMapper.writeValueAsString(voidAPIResponse));
+        mockWebServer.enqueue(response);
+        mockWebServer.enqueue(response);
+
+        var apiResponse = new RealEngineAIResponse<String>();
+        apiResponse.setSuccess(true);
+        apiResponse.setData("This is a test caption");
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+        // When
+        client.getCaption("http://example.com/testImage").get();
+
+        // Then
+        var stats = client.getTaskPollingStats();
+        assertEquals(1, stats.getTasks());
+        assertEquals(2, stats.getPolls());
+        assertEquals(2.0, stats.getPollsPerTask());
+    }
+
+    @Test
+    void getCaptionTaskErrorIsNotRecordedInPollingStats() throws Exception {
+        // Given
+        var voidAPIResponse = new RealEngineAIResponse<Void>();
+        voidAPIResponse.setSuccess(true);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(202)
+                .addHeader("Location", "/task?id=test-task-id")
+                .addHeader("X-Retry-After", "0.01")
+                .setBody(objectMapper.writeValueAsString(voidAPIResponse)));
+
+        var error = new ErrorDTO();
+        error.setId("test-error-id");
+        error.setMsg("The task does not exist");
+        var apiResponse = new RealEngineAIResponse<>();
+        apiResponse.setSuccess(false);
+        apiResponse.setError(error);
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(404)
+                .setBody(objectMapper.writeValueAsString(apiResponse)));
+
+        // When
+        Throwable th = null;
+        try {
+            client.getCaption("http://example.com/testImage").get();
+        } catch (ExecutionException e) {
+            th = e.getCause();
+        }
+
+        // Then
+        assertEquals(RealEngineAIException.class, th.getClass());
+        var stats = client.getTaskPollingStats();
+        assertEquals(0, stats.getTasks());
+        assertEquals(0, stats.getPolls());
+    }
+
+    @Test
+    void getCaptionInteractiveLaneOvertakesBulk() throws Exception {
+        // Given
+        var laneClient = RealEngineAIClient.newBuilder()
+                .setToken("test-token")
+                .setRootUrl(mockWebServer.url("/").toString())
+                .setMaxConcurrentRequests(1)
+                .addLane("interactive", 8)
+                .addLane("bulk", 1)
+                .build();
+
+        var release = new CountDownLatch(1);
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                return MockResponses.success(request.getRequestUrl().queryParameter("url"));
+            }
+        });
+
+        // When
+        var captions = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 10; i++) {
+            captions.add(laneClient.getCaption("http://example.com/bulk" + i, "bulk"));
+        }
+        var interactive = laneClient.getCaption("http://example.com/interactive", "interactive");
+
+        var bulkStats = laneClient.getLaneStats().stream()
+                .filter(stats -> stats.getName().equals("bulk"))
+                .findFirst()
+                .orElseThrow();
+        release.countDown();
+
+        // Then
+        assertEquals(9, bulkStats.getQueueDepth());
+        assertEquals(1, bulkStats.getInFlight());
+        assertEquals("http://example.com/interactive", interactive.get());
+        for (var caption : captions) {
+            assertNotNull(caption.get());
+        }
+
+        assertEquals("http://example.com/bulk0", mockWebServer.takeRequest().getRequestUrl().queryParameter("url"));
+        assertEquals("http://example.com/interactive", mockWebServer.takeRequest().getRequestUrl().queryParameter("url"));
+    }
+
+    @Test
+    void getCaptionInteractiveLaneGetsSlotWhileBulkIsSaturated() throws Exception {
+        // Given
+        var laneClient = RealEngineAIClient.newBuilder()
+                .setToken("test-token")
+                .setRootUrl(mockWebServer.url("/").toString())
+                .setMaxConcurrentRequests(2)
+                .addLane("interactive", 1)
+                .addLane("bulk", 8, 1)
+                .build();
+
+        var release = new CountDownLatch(1);
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                var url = request.getRequestUrl().queryParameter("url");
+                if (url.contains("bulk")) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                return MockResponses.success(url);
+            }
+        });
+
+        // When
+        var captions = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 5; i++) {
+            captions.add(laneClient.getCaption("http://example.com/bulk" + i, "bulk"));
+        }
+        // The bulk requests are still blocked by the server
+        var interactive = laneClient.getCaption("http://example.com/interactive", "interactive")
+                .get(2, TimeUnit.SECONDS);
+
+        var bulkStats = laneClient.getLaneStats().stream()
+                .filter(stats -> stats.getName().equals("bulk"))
+                .findFirst()
+                .orElseThrow();
+        release.countDown();
+
+        // Then
+        assertEquals("http://example.com/interactive", interactive);
+        assertEquals(1, bulkStats.getMaxInFlight());
+        assertEquals(1, bulkStats.getInFlight());
+        assertEquals(4, bulkStats.getQueueDepth());
+        for (var caption : captions) {
+            assertNotNull(caption.get());
+        }
+    }
+
+    @Test
+    void getCaptionCancelledWhileQueuedIsNotSent() throws Exception {
+        // Given
+        var laneClient = RealEngineAIClient.newBuilder()
+                .setToken("test-token")
+                .setRootUrl(mockWebServer.url("/").toString())
+                .setMaxConcurrentRequests(1)
+                .build();
+
+        var release = new CountDownLatch(1);
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                return MockResponses.success(request.getRequestUrl().queryParameter("url"));
+            }
+        });
+
+        // When
+        var first = laneClient.getCaption("http://example.com/first");
+        var cancelled = laneClient.getCaption("http://example.com/cancelled");
+        var last = laneClient.getCaption("http://example.com/last");
+        cancelled.cancel(true);
+
+        var queueDepth = laneClient.getLaneStats().get(0).getQueueDepth();
+        release.countDown();
+
+        // Then
+        assertEquals(1, queueDepth);
+        assertEquals("http://example.com/first", first.get());
+        assertEquals("http://example.com/last", last.get());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    private static class CountingCaptionListener implements CaptionListener {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void onCaption(String caption) {
+            calls.incrementAndGet();
+            result.complete(caption);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            calls.incrementAndGet();
+            result.completeExceptionally(error);
+        }
+    }
+
+}
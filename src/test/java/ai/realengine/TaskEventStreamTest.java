@@ -0,0 +1,124 @@
+package ai.realengine;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TaskEventStreamTest {
+
+    RealEngineAIClient client;
+
+    MockWebServer mockWebServer;
+
+    AtomicInteger taskPolls = new AtomicInteger();
+
+    @BeforeEach
+    void setup() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                switch (request.getRequestUrl().encodedPath()) {
+                    case "/tasks/events":
+                        // The stream ends after the event, so it is sent again on every reconnection
+                        return new MockResponse()
+                                .setResponseCode(200)
+                                .addHeader("Content-Type", "text/event-stream")
+                                .setBodyDelay(500, TimeUnit.MILLISECONDS)
+                                .setBody(": keep-alive\n\n" +
+                                        "id: 1\n" +
+                                        "data: {\"location\":\"/task?id=test-task-id\"}\n\n");
+                    case "/caption":
+                        if (request.getRequestUrl().queryParameter("url").endsWith("quiet")) {
+                            // No event is ever sent for this task
+                            return MockResponses.accepted("/task?id=quiet-task-id");
+                        }
+
+                        if (request.getRequestUrl().queryParameter("url").endsWith("early")) {
+                            // The completion is notified before the client receives the 202 response
+                            client.notifyTaskCompleted("/task?id=early-task-id");
+                            return MockResponses.accepted("/task?id=early-task-id");
+                        }
+
+                        return MockResponses.accepted("/task?id=test-task-id");
+                    default:
+                        taskPolls.incrementAndGet();
+                        return MockResponses.success("This is a test caption");
+                }
+            }
+        });
+        mockWebServer.start();
+        client = RealEngineAIClient.newBuilder()
+                .setToken("test-token")
+                .setRootUrl(mockWebServer.url("/").toString())
+                .setTaskEventsPath("tasks/events")
+                .setFallbackPollInterval(Duration.ofMinutes(1))
+                .build();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        client.close();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void getCaptionCompletedByTaskEvent() throws Exception {
+        // When
+        var caption = client.getCaption("http://example.com/testImage").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("This is a test caption", caption);
+        assertEquals(1, taskPolls.get());
+    }
+
+    @Test
+    void notifyTaskCompletedPollsWaitingTask() throws Exception {
+        // When
+        var caption = client.getCaption("http://example.com/testImage");
+        // The event of the stream may win the race, the task is polled once anyway
+        while (!caption.isDone() && !client.notifyTaskCompleted("/task?id=test-task-id")) {
+            Thread.sleep(10);
+        }
+
+        // Then
+        assertEquals("This is a test caption", caption.get(1, TimeUnit.SECONDS));
+        assertEquals(1, taskPolls.get());
+    }
+
+    @Test
+    void getCaptionCompletedBeforeAccepted() throws Exception {
+        // When
+        var caption = client.getCaption("http://example.com/early").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("This is a test caption", caption);
+        assertEquals(1, taskPolls.get());
+    }
+
+    @Test
+    void closePollsWaitingTasks() throws Exception {
+        // Given
+        var caption = client.getCaption("http://example.com/quiet");
+        Thread.sleep(500);
+
+        // When
+        client.close();
+
+        // Then
+        assertEquals("This is a test caption", caption.get(5, TimeUnit.SECONDS));
+        assertEquals(1, taskPolls.get());
+    }
+
+}
@@ -0,0 +1,183 @@
+package ai.realengine.batch;
+
+import ai.realengine.MockResponses;
+import ai.realengine.RealEngineAIClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptionBatchRunnerTest {
+
+    static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    CaptionBatchRunner runner;
+
+    MockWebServer mockWebServer;
+
+    AtomicInteger flakyRequests = new AtomicInteger();
+
+    @BeforeEach
+    void setup() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                var url = request.getRequestUrl().queryParameter("url");
+                if (url.endsWith("flaky") && flakyRequests.getAndIncrement() == 0) {
+                    return new MockResponse()
+                            .setResponseCode(503);
+                }
+
+                if (url.endsWith("bad")) {
+                    return MockResponses.error(400, "test-error-id", "The link is not accessible");
+                }
+
+                return MockResponses.success("caption " + url);
+            }
+        });
+        mockWebServer.start();
+        var client = RealEngineAIClient.newBuilder()
+                .setToken("test-token")
+                .setRootUrl(mockWebServer.url("/").toString())
+                .setMaxRetries(0)
+                .build();
+        runner = new CaptionBatchRunner(client, objectMapper, 2);
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void runWritesResultsAndCheckpoint() throws Exception {
+        // Given
+        var input = tempDir.resolve("urls.txt");
+        var output = tempDir.resolve("captions.jsonl");
+        Files.write(input, List.of(
+                "http://example.com/1",
+                "",
+                "# comment",
+                "http://example.com/bad",
+                "http://example.com/5"));
+
+        // When
+        var summary = runner.run(input, output);
+
+        // Then
+        assertEquals(2, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals(0, summary.getSkipped());
+        assertEquals("5", Files.readString(tempDir.resolve("captions.jsonl.checkpoint")));
+
+        var records = new HashMap<Long, JsonNode>();
+        for (var line : Files.readAllLines(output)) {
+            var record = objectMapper.readTree(line);
+            records.put(record.get("line").asLong(), record);
+        }
+        assertEquals(3, records.size());
+        assertEquals("caption http://example.com/1", records.get(1L).get("caption").asText());
+        assertEquals("The link is not accessible", records.get(4L).get("error").asText());
+        assertEquals("test-error-id", records.get(4L).get("errorId").asText());
+        assertEquals(400, records.get(4L).get("httpStatus").asInt());
+
+        // A second run has nothing to do
+        summary = runner.run(input, output);
+        assertEquals(0, summary.getSucceeded());
+        assertEquals(5, summary.getSkipped());
+        assertEquals(3, mockWebServer.getRequestCount());
+    }
+
+    @Test
+    void runResumesAfterCrash() throws Exception {
+        // Given
+        var input = tempDir.resolve("urls.txt");
+        var output = tempDir.resolve("captions.jsonl");
+        Files.write(input, List.of(
+                "http://example.com/1",
+                "http://example.com/2",
+                "http://example.com/3",
+                "http://example.com/4"));
+        Files.writeString(tempDir.resolve("captions.jsonl.checkpoint"), "1");
+        Files.writeString(output,
+                "{\"line\":1,\"url\":\"http://example.com/1\",\"caption\":\"caption http://example.com/1\"}\n" +
+                        "{\"line\":3,\"url\":\"http://example.com/3\",\"caption\":\"caption http://example.com/3\"}\n" +
+                        "{\"line\":4,\"url\":\"http://exa");
+
+        // When
+        var summary = runner.run(input, output);
+
+        // Then
+        assertEquals(2, summary.getSucceeded());
+        assertEquals(2, summary.getSkipped());
+        assertEquals("4", Files.readString(tempDir.resolve("captions.jsonl.checkpoint")));
+        assertEquals(4, Files.readAllLines(output).size());
+        for (var line : Files.readAllLines(output)) {
+            objectMapper.readTree(line);
+        }
+
+        var requested = List.of(
+                mockWebServer.takeRequest().getRequestUrl().queryParameter("url"),
+                mockWebServer.takeRequest().getRequestUrl().queryParameter("url"));
+        assertEquals(2, mockWebServer.getRequestCount());
+        assertTrue(requested.containsAll(List.of("http://example.com/2", "http://example.com/4")));
+    }
+
+    @Test
+    void runRetriesRetryableFailures() throws Exception {
+        // Given
+        var input = tempDir.resolve("urls.txt");
+        var output = tempDir.resolve("captions.jsonl");
+        Files.write(input, List.of(
+                "http://example.com/flaky",
+                "http://example.com/bad"));
+
+        // When
+        var first = runner.run(input, output);
+        var second = runner.run(input, output);
+
+        // Then
+        assertEquals(2, first.getFailed());
+        assertEquals(1, second.getSucceeded());
+        assertEquals(0, second.getFailed());
+        assertEquals(1, second.getSkipped());
+
+        var records = Files.readAllLines(output);
+        assertEquals(3, records.size());
+        var retryable = 0;
+        for (var record : records.subList(0, 2)) {
+            var node = objectMapper.readTree(record);
+            if (node.path("retryable").asBoolean()) {
+                retryable++;
+                assertEquals(1, node.get("line").asLong());
+            }
+        }
+        assertEquals(1, retryable);
+        var retried = objectMapper.readTree(records.get(2));
+        assertEquals(1, retried.get("line").asLong());
+        assertEquals("caption http://example.com/flaky", retried.get("caption").asText());
+        assertFalse(retried.has("retryable"));
+    }
+
+}
@@ -0,0 +1,99 @@
+package ai.realengine.testing;
+
+import ai.realengine.RealEngineAIClient;
+import ai.realengine.RealEngineAIException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RealEngineSimulatorTest {
+
+    @Test
+    void loadDriverCompletesQueuedTasks() throws Exception {
+        try (var simulator = RealEngineSimulator.newBuilder()
+                .setLatency(LatencyDistribution.uniform(1, 5))
+                .setTaskProbability(0.5)
+                .setTaskDuration(LatencyDistribution.uniform(10, 50))
+                .setRetryAfter(Duration.ofMillis(20))
+                .setSeed(42)
+                .build()) {
+            // Given
+            simulator.start();
+            var client = RealEngineAIClient.newBuilder()
+                    .setToken("test-token")
+                    .setRootUrl(simulator.getRootUrl())
+                    .setMaxConcurrentRequests(10)
+                    .build();
+
+            // When
+            var report = new LoadDriver(client, 100, 10).run();
+
+            // Then
+            assertEquals(100, report.getRequests());
+            assertEquals(0, report.getFailures());
+            assertEquals(100, simulator.getCaptionRequests());
+            assertTrue(simulator.getTaskPolls() > 0);
+            assertTrue(report.getLatencyMs(0.5) <= report.getLatencyMs(0.99));
+        }
+    }
+
+    @Test
+    void quotaIsEnforced() throws Exception {
+        try (var simulator = RealEngineSimulator.newBuilder()
+                .setRequestsPerSecond(1)
+                .build()) {
+            // Given
+            simulator.start();
+            var client = RealEngineAIClient.newBuilder()
+                    .setToken("test-token")
+                    .setRootUrl(simulator.getRootUrl())
+                    .setMaxRetries(0)
+                    .build();
+
+            // When
+            client.getCaption("http://example.com/first").get();
+            Throwable th = null;
+            try {
+                client.getCaption("http://example.com/second").get();
+            } catch (ExecutionException e) {
+                th = e.getCause();
+            }
+
+            // Then
+            assertNotNull(th);
+            assertEquals(429, ((RealEngineAIException) th).getHttpStatus());
+            assertEquals(1, simulator.getThrottledResponses());
+        }
+    }
+
+    @Test
+    void completedTasksAreEvictedAfterRetention() throws Exception {
+        try (var simulator = RealEngineSimulator.newBuilder()
+                .setTaskProbability(1)
+                .setTaskDuration(LatencyDistribution.fixed(0))
+                .setRetryAfter(Duration.ofMillis(10))
+                .setTaskRetention(Duration.ofMillis(500))
+                .build()) {
+            // Given
+            simulator.start();
+            var client = RealEngineAIClient.newBuilder()
+                    .setToken("test-token")
+                    .setRootUrl(simulator.getRootUrl())
+                    .build();
+            client.getCaption("http://example.com/first").get();
+
+            // When
+            Thread.sleep(600);
+            client.getCaption("http://example.com/second").get();
+
+            // Then
+            assertEquals(1, simulator.getRetainedTasks());
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package ai.realengine.testing;
+
+import java.util.Random;
+
+/**
+ * A distribution of delays, used by the simulator for response latencies and task durations.
+ */
+public interface LatencyDistribution {
+
+    /**
+     * @param random the source of randomness
+     * @return a delay in ms
+     */
+    long sampleMs(Random random);
+
+    /**
+     * @return a distribution always returning the given delay
+     */
+    static LatencyDistribution fixed(long ms) {
+        if (ms < 0) {
+            throw new IllegalArgumentException("ms must be >= 0");
+        }
+
+        return random -> ms;
+    }
+
+    /**
+     * @return a distribution uniform between the given delays, both included
+     */
+    static LatencyDistribution uniform(long minMs, long maxMs) {
+        if (minMs < 0 || maxMs < minMs) {
+            throw new IllegalArgumentException("Expected 0 <= minMs <= maxMs");
+        }
+
+        return random -> minMs + (long) (random.nextDouble() * (maxMs - minMs + 1));
+    }
+
+    /**
+     * A log-normal distribution, the usual shape of service latencies: most values close to the median
+     * and a long tail of slow ones.
+     *
+     * @param medianMs the median delay
+     * @param sigma    the standard deviation of the logarithm of the delay, 0.5 gives a p99 about 3 times the median
+     */
+    static LatencyDistribution logNormal(long medianMs, double sigma) {
+        if (medianMs <= 0 || sigma < 0) {
+            throw new IllegalArgumentException("Expected medianMs > 0 and sigma >= 0");
+        }
+
+        return random -> Math.round(medianMs * Math.exp(sigma * random.nextGaussian()));
+    }
+
+}
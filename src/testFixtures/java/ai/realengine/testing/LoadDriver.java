@@ -0,0 +1,115 @@
+package ai.realengine.testing;
+
+import ai.realengine.AdaptiveTaskPollingStrategy;
+import ai.realengine.RealEngineAIClient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends caption requests through a client with bounded concurrency and reports throughput and latency.
+ */
+public class LoadDriver {
+
+    private final RealEngineAIClient client;
+    private final int requests;
+    private final int concurrency;
+
+    /**
+     * Create a new driver.
+     *
+     * @param client      the client to load
+     * @param requests    the number of caption requests to send
+     * @param concurrency the maximum number of requests in progress at once
+     */
+    public LoadDriver(RealEngineAIClient client, int requests, int concurrency) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+
+        if (requests <= 0) {
+            throw new IllegalArgumentException("requests must be > 0");
+        }
+
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be > 0");
+        }
+
+        this.client = client;
+        this.requests = requests;
+        this.concurrency = concurrency;
+    }
+
+    public LoadReport run() throws InterruptedException {
+        var latencies = new long[requests];
+        var failures = new LongAdder();
+        var permits = new Semaphore(concurrency);
+        var done = new CountDownLatch(requests);
+
+        var start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            permits.acquire();
+            var index = i;
+            var requestStart = System.nanoTime();
+            client.getCaption("http://example.com/image/" + i).whenComplete((caption, th) -> {
+                latencies[index] = System.nanoTime() - requestStart;
+                if (th != null) {
+                    failures.increment();
+                }
+                permits.release();
+                done.countDown();
+            });
+        }
+
+        // The latch makes the latencies written by the http client threads visible
+        done.await();
+        var duration = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new LoadReport(requests, failures.sum(), duration, latencies);
+    }
+
+    /**
+     * Run a load test against a simulator with production-like latencies and faults.
+     * <p>
+     * Usage: {@code LoadDriver [requests] [concurrency]}
+     */
+    public static void main(String[] args) throws Exception {
+        var requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        var concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+
+        try (var simulator = RealEngineSimulator.newBuilder()
+                .setLatency(LatencyDistribution.logNormal(20, 0.5))
+                .setTaskProbability(0.2)
+                .setTaskDuration(LatencyDistribution.logNormal(500, 0.5))
+                .setRetryAfter(Duration.ofMillis(200))
+                .setErrorBursts(0.001, Duration.ofMillis(200))
+                .setConnectionResetProbability(0.001)
+                .build()) {
+            simulator.start();
+
+            try (var client = RealEngineAIClient.newBuilder()
+                    .setToken("load-test-token")
+                    .setRootUrl(simulator.getRootUrl())
+                    .setMaxConcurrentRequests(concurrency)
+                    // Let the resets of the simulator reach the retries of the client
+                    .setRetryOnConnectionFailure(false)
+                    .setTaskPollingStrategy(new AdaptiveTaskPollingStrategy())
+                    .build()) {
+                var report = new LoadDriver(client, requests, concurrency).run();
+                System.out.println(report);
+                System.out.println(client.getTaskPollingStats());
+            }
+
+            System.out.printf("simulator: captions=%d, polls=%d, 429=%d, 500=%d, resets=%d%n",
+                    simulator.getCaptionRequests(),
+                    simulator.getTaskPolls(),
+                    simulator.getThrottledResponses(),
+                    simulator.getErrorResponses(),
+                    simulator.getConnectionResets());
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package ai.realengine.testing;
+
+/**
+ * The throughput and latency percentiles of a {@link LoadDriver} run.
+ */
+public class LoadReport {
+
+    private final int requests;
+    private final long failures;
+    private final long durationNanos;
+
+    /**
+     * Latency of every request in ns, sorted
+     */
+    private final long[] latencies;
+
+    public LoadReport(int requests, long failures, long durationNanos, long[] latencies) {
+        this.requests = requests;
+        this.failures = failures;
+        this.durationNanos = durationNanos;
+        this.latencies = latencies;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getDurationMs() {
+        return durationNanos / 1e6;
+    }
+
+    /**
+     * @return the number of completed requests per second
+     */
+    public double getThroughput() {
+        return durationNanos == 0 ? 0 : requests / (durationNanos / 1e9);
+    }
+
+    /**
+     * @param quantile the quantile, between 0 and 1
+     * @return the latency quantile in ms, including the retries and the task polls of a request
+     */
+    public double getLatencyMs(double quantile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+
+        var index = (int) Math.ceil(quantile * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(latencies.length - 1, index))] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%d, failures=%d, duration=%.0fms, throughput=%.1f req/s, " +
+                        "latency p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                requests,
+                failures,
+                getDurationMs(),
+                getThroughput(),
+                getLatencyMs(0.5),
+                getLatencyMs(0.9),
+                getLatencyMs(0.99),
+                getLatencyMs(1));
+    }
+}
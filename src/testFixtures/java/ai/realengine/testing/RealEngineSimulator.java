@@ -0,0 +1,364 @@
+package ai.realengine.testing;
+
+import ai.realengine.dto.ErrorDTO;
+import ai.realengine.dto.RealEngineAIResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import javax.net.ServerSocketFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the RealEngine AI service, serving the caption and task endpoints
+ * with configurable latency, queued tasks and faults.
+ * <p>
+ * Faults are applied in order to every request: a connection reset, a 429 when the quota
+ * of the current second is exhausted, then a 500 during an error burst.
+ * Completed tasks can be polled again until their retention expires, then they are evicted.
+ */
+public class RealEngineSimulator implements Closeable {
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final MockWebServer server = new MockWebServer();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final PriorityQueue<Task> taskExpirations = new PriorityQueue<>(Comparator.comparingLong(task -> task.expiresAt));
+    private final AtomicLong taskIds = new AtomicLong();
+
+    private final LatencyDistribution latency;
+    private final double taskProbability;
+    private final LatencyDistribution taskDuration;
+    private final Duration retryAfter;
+    private final long taskRetentionNanos;
+    private final int requestsPerSecond;
+    private final double errorBurstProbability;
+    private final long errorBurstLengthNanos;
+    private final double connectionResetProbability;
+    private final Random random;
+
+    private final LongAdder captionRequests = new LongAdder();
+    private final LongAdder taskPolls = new LongAdder();
+    private final LongAdder throttledResponses = new LongAdder();
+    private final LongAdder errorResponses = new LongAdder();
+    private final LongAdder connectionResets = new LongAdder();
+
+    // Guarded by this
+    private long quotaWindowStart = System.nanoTime();
+    private int quotaWindowRequests = 0;
+    private long errorBurstEnd = 0;
+
+    RealEngineSimulator(LatencyDistribution latency,
+                        double taskProbability,
+                        LatencyDistribution taskDuration,
+                        Duration retryAfter,
+                        Duration taskRetention,
+                        int requestsPerSecond,
+                        double errorBurstProbability,
+                        Duration errorBurstLength,
+                        double connectionResetProbability,
+                        long seed) {
+        this.latency = latency;
+        this.taskProbability = taskProbability;
+        this.taskDuration = taskDuration;
+        this.retryAfter = retryAfter;
+        this.taskRetentionNanos = taskRetention.toNanos();
+        this.requestsPerSecond = requestsPerSecond;
+        this.errorBurstProbability = errorBurstProbability;
+        this.errorBurstLengthNanos = errorBurstLength.toNanos();
+        this.connectionResetProbability = connectionResetProbability;
+        this.random = new Random(seed);
+    }
+
+    public static RealEngineSimulatorBuilder newBuilder() {
+        return new RealEngineSimulatorBuilder();
+    }
+
+    /**
+     * Start the simulator on a random port.
+     */
+    public void start() throws IOException {
+        start(0);
+    }
+
+    /**
+     * Start the simulator on the given port.
+     */
+    public void start(int port) throws IOException {
+        server.setDispatcher(new SimulatorDispatcher());
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.start(port);
+    }
+
+    /**
+     * @return the root url to configure the client with
+     */
+    public String getRootUrl() {
+        return server.url("/").toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    public long getCaptionRequests() {
+        return captionRequests.sum();
+    }
+
+    public long getTaskPolls() {
+        return taskPolls.sum();
+    }
+
+    public long getThrottledResponses() {
+        return throttledResponses.sum();
+    }
+
+    public long getErrorResponses() {
+        return errorResponses.sum();
+    }
+
+    /**
+     * @return the number of connections closed without a response. OkHttp retries a request on a pooled connection
+     * that was closed this way unless retryOnConnectionFailure is disabled, so the client may not have seen them all.
+     */
+    public long getConnectionResets() {
+        return connectionResets.sum();
+    }
+
+    /**
+     * @return the number of tasks that can still be polled
+     */
+    public int getRetainedTasks() {
+        return tasks.size();
+    }
+
+    private MockResponse dispatch(RecordedRequest request) {
+        var now = System.nanoTime();
+        if (random.nextDouble() < connectionResetProbability) {
+            connectionResets.increment();
+            return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+        }
+
+        var auth = request.getHeader("Authorization");
+        if (auth == null || !auth.startsWith("Bearer ")) {
+            return error(401, "The token is missing");
+        }
+
+        var throttledFor = throttledForNanos(now);
+        if (throttledFor > 0) {
+            throttledResponses.increment();
+            return error(429, "Too many requests")
+                    .addHeader("X-Retry-After", seconds(throttledFor));
+        }
+
+        if (inErrorBurst(now)) {
+            errorResponses.increment();
+            return error(500, "Simulated error burst");
+        }
+
+        var url = request.getRequestUrl();
+        switch (url.encodedPath()) {
+            case "/caption":
+                return caption(url.queryParameter("url"), now);
+            case "/task":
+                return task(url.queryParameter("id"), now);
+            default:
+                return error(404, "Not found");
+        }
+    }
+
+    private MockResponse caption(String imageUrl, long now) {
+        captionRequests.increment();
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return error(400, "The url parameter is required");
+        }
+
+        if (random.nextDouble() >= taskProbability) {
+            return success(imageUrl);
+        }
+
+        evictExpiredTasks(now);
+        var id = Long.toString(taskIds.incrementAndGet());
+        var completesAt = now + TimeUnit.MILLISECONDS.toNanos(taskDuration.sampleMs(random));
+        var task = new Task(id, imageUrl, completesAt, completesAt + taskRetentionNanos);
+        tasks.put(id, task);
+        synchronized (taskExpirations) {
+            taskExpirations.add(task);
+        }
+        return accepted(id);
+    }
+
+    private MockResponse task(String id, long now) {
+        taskPolls.increment();
+        evictExpiredTasks(now);
+        var task = id == null ? null : tasks.get(id);
+        if (task == null) {
+            return error(404, "The task does not exist");
+        }
+
+        if (now < task.completesAt) {
+            return accepted(id);
+        }
+
+        return success(task.imageUrl);
+    }
+
+    private void evictExpiredTasks(long now) {
+        synchronized (taskExpirations) {
+            while (!taskExpirations.isEmpty() && taskExpirations.peek().expiresAt <= now) {
+                tasks.remove(taskExpirations.poll().id);
+            }
+        }
+    }
+
+    private synchronized long throttledForNanos(long now) {
+        if (requestsPerSecond == 0) {
+            return 0;
+        }
+
+        if (now - quotaWindowStart >= SECOND_NANOS) {
+            quotaWindowStart = now;
+            quotaWindowRequests = 0;
+        }
+
+        if (quotaWindowRequests < requestsPerSecond) {
+            quotaWindowRequests++;
+            return 0;
+        }
+
+        return quotaWindowStart + SECOND_NANOS - now;
+    }
+
+    private synchronized boolean inErrorBurst(long now) {
+        if (now < errorBurstEnd) {
+            return true;
+        }
+
+        if (errorBurstProbability > 0 && random.nextDouble() < errorBurstProbability) {
+            errorBurstEnd = now + errorBurstLengthNanos;
+            return true;
+        }
+
+        return false;
+    }
+
+    private MockResponse accepted(String id) {
+        var apiResponse = new RealEngineAIResponse<Void>();
+        apiResponse.setSuccess(true);
+        var response = response(202, apiResponse)
+                .addHeader("Location", "/task?id=" + id);
+        if (retryAfter != null) {
+            response.addHeader("X-Retry-After", seconds(retryAfter.toNanos()));
+        }
+        return response;
+    }
+
+    private MockResponse success(String imageUrl) {
+        var apiResponse = new RealEngineAIResponse<String>();
+        apiResponse.setSuccess(true);
+        apiResponse.setData("Simulated caption of " + imageUrl);
+        return response(200, apiResponse);
+    }
+
+    private MockResponse error(int code, String message) {
+        var error = new ErrorDTO();
+        error.setId("simulated-" + code);
+        error.setMsg(message);
+
+        var apiResponse = new RealEngineAIResponse<Void>();
+        apiResponse.setError(error);
+        return response(code, apiResponse);
+    }
+
+    private MockResponse response(int code, RealEngineAIResponse<?> apiResponse) {
+        try {
+            return new MockResponse()
+                    .setResponseCode(code)
+                    .setHeadersDelay(latency.sampleMs(random), TimeUnit.MILLISECONDS)
+                    .setBody(mapper.writeValueAsString(apiResponse));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) SECOND_NANOS);
+    }
+
+    private class SimulatorDispatcher extends Dispatcher {
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            return RealEngineSimulator.this.dispatch(request);
+        }
+    }
+
+    /**
+     * Creates server sockets whose connections send small writes right away. The mock web server writes
+     * the headers and the body of a response separately, so with Nagle's algorithm every response
+     * would wait for the delayed acknowledgement of the client, about 40 ms on loopback.
+     */
+    private static class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    var socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Task {
+        final String id;
+        final String imageUrl;
+        final long completesAt;
+        final long expiresAt;
+
+        Task(String id, String imageUrl, long completesAt, long expiresAt) {
+            this.id = id;
+            this.imageUrl = imageUrl;
+            this.completesAt = completesAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package ai.realengine.testing;
+
+import java.time.Duration;
+
+public class RealEngineSimulatorBuilder {
+
+    private LatencyDistribution latency = LatencyDistribution.fixed(0);
+
+    private double taskProbability = 0;
+    private LatencyDistribution taskDuration = LatencyDistribution.fixed(1000);
+    private Duration retryAfter = Duration.ofSeconds(1);
+    private Duration taskRetention = Duration.ofMinutes(5);
+
+    private int requestsPerSecond = 0;
+
+    private double errorBurstProbability = 0;
+    private Duration errorBurstLength = Duration.ofSeconds(1);
+
+    private double connectionResetProbability = 0;
+
+    private Long seed;
+
+    /**
+     * Set the distribution of the response latency.
+     * The default is no latency.
+     */
+    public RealEngineSimulatorBuilder setLatency(LatencyDistribution latency) {
+        if (latency == null) {
+            throw new IllegalArgumentException("Latency must not be null");
+        }
+
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Set the probability that a caption request is queued as a task, answered with a 202 and a Location header.
+     * The default value is 0.
+     */
+    public RealEngineSimulatorBuilder setTaskProbability(double taskProbability) {
+        checkProbability(taskProbability);
+        this.taskProbability = taskProbability;
+        return this;
+    }
+
+    /**
+     * Set the distribution of the time a queued task takes to complete.
+     * The default value is 1s.
+     */
+    public RealEngineSimulatorBuilder setTaskDuration(LatencyDistribution taskDuration) {
+        if (taskDuration == null) {
+            throw new IllegalArgumentException("Task duration must not be null");
+        }
+
+        this.taskDuration = taskDuration;
+        return this;
+    }
+
+    /**
+     * Set the delay suggested with the X-Retry-After header of the 202 responses, or null to omit the header.
+     * The default value is 1s.
+     */
+    public RealEngineSimulatorBuilder setRetryAfter(Duration retryAfter) {
+        if (retryAfter != null && retryAfter.isNegative()) {
+            throw new IllegalArgumentException("Retry after must not be negative");
+        }
+
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Set how long a completed task can still be polled, for instance by a client resumed after a restart.
+     * Polling a task after that is answered with a 404.
+     * The default value is 5 minutes.
+     */
+    public RealEngineSimulatorBuilder setTaskRetention(Duration taskRetention) {
+        if (taskRetention == null || taskRetention.isNegative()) {
+            throw new IllegalArgumentException("Task retention must not be null or negative");
+        }
+
+        this.taskRetention = taskRetention;
+        return this;
+    }
+
+    /**
+     * Set the quota of requests per second, the requests over the quota are answered with a 429
+     * and an X-Retry-After header pointing to the next second.
+     * The default value is 0, no quota.
+     */
+    public RealEngineSimulatorBuilder setRequestsPerSecond(int requestsPerSecond) {
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException("Requests per second must not be negative");
+        }
+
+        this.requestsPerSecond = requestsPerSecond;
+        return this;
+    }
+
+    /**
+     * Set the error bursts. Every request outside a burst starts one with the given probability,
+     * and all the requests during a burst are answered with a 500.
+     * The default probability is 0.
+     */
+    public RealEngineSimulatorBuilder setErrorBursts(double probability, Duration length) {
+        checkProbability(probability);
+        if (length == null || length.isNegative()) {
+            throw new IllegalArgumentException("Error burst length must not be null or negative");
+        }
+
+        this.errorBurstProbability = probability;
+        this.errorBurstLength = length;
+        return this;
+    }
+
+    /**
+     * Set the probability that the connection is closed after a request is received, without a response.
+     * The connection is closed gracefully, which OkHttp treats as a stale pooled connection: disable
+     * {@link ai.realengine.RealEngineAIClientBuilder#setRetryOnConnectionFailure(boolean) retries on connection
+     * failures} for the client to see every reset.
+     * The default value is 0.
+     */
+    public RealEngineSimulatorBuilder setConnectionResetProbability(double connectionResetProbability) {
+        checkProbability(connectionResetProbability);
+        this.connectionResetProbability = connectionResetProbability;
+        return this;
+    }
+
+    /**
+     * Set the seed of the random generator. The generator is shared by the concurrent requests, which draw
+     * from it in arrival order, and the quota and the error bursts depend on the wall clock, so a seed only
+     * gives the same sequence of tasks and faults to a client sending one request at a time without quota
+     * or error bursts. Concurrent runs with the same seed are only alike statistically.
+     */
+    public RealEngineSimulatorBuilder setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public RealEngineSimulator build() {
+        return new RealEngineSimulator(latency,
+                taskProbability,
+                taskDuration,
+                retryAfter,
+                taskRetention,
+                requestsPerSecond,
+                errorBurstProbability,
+                errorBurstLength,
+                connectionResetProbability,
+                seed == null ? System.nanoTime() : seed);
+    }
+
+    private static void checkProbability(double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("Probability must be between 0 and 1");
+        }
+    }
+
+}